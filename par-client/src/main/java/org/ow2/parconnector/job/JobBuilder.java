@@ -0,0 +1,150 @@
+package org.ow2.parconnector.job;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.ow2.proactive.scheduler.common.exception.UserException;
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.task.ScriptTask;
+import org.ow2.proactive.scheduler.common.task.Task;
+import org.ow2.proactive.scheduler.common.task.dataspaces.InputAccessMode;
+import org.ow2.proactive.scheduler.common.task.dataspaces.OutputAccessMode;
+import org.ow2.proactive.scripting.InvalidScriptException;
+import org.ow2.proactive.scripting.SelectionScript;
+import org.ow2.proactive.scripting.SimpleScript;
+import org.ow2.proactive.scripting.TaskScript;
+
+
+/**
+ * Builds the tasks and the job of a PA()/PASolve() call from columnar
+ * descriptions, so that R crosses to Java once per call instead of several
+ * times per task.
+ * <p>
+ * Tasks refer to each other by their index in the arrays. Files are described
+ * by the index of their task, their selector and the name of their data space
+ * (INPUT, OUTPUT, GLOBAL or USER).
+ *
+ * @author Activeeon Team
+ */
+public class JobBuilder {
+
+    private JobBuilder() {
+    }
+
+    public static ScriptTask[] createTasks(String[] names) {
+        ScriptTask[] tasks = new ScriptTask[names.length];
+        for (int i = 0; i < names.length; i++) {
+            tasks[i] = new ScriptTask();
+            tasks[i].setName(names[i]);
+        }
+        return tasks;
+    }
+
+    /**
+     * Sets the scripts of the tasks, and the options shared by all of them
+     *
+     * @param dependencyIndexes index of the dependent task for each of the dependencies
+     * @param dependencies tasks the tasks at the same position in dependencyIndexes depend on
+     * @param wallTime the walltime in milliseconds, disabled if negative
+     */
+    public static void configureTasks(Task[] tasks, String[] scripts, String engine,
+            SelectionScript[] selectionScripts, String[] genericInformationKeys,
+            String[] genericInformationValues, boolean runAsMe, long wallTime, int[] dependencyIndexes,
+            Task[] dependencies) throws InvalidScriptException {
+        for (int i = 0; i < tasks.length; i++) {
+            Task task = tasks[i];
+            if (task instanceof ScriptTask) {
+                ((ScriptTask) task).setScript(new TaskScript(new SimpleScript(scripts[i], engine)));
+            }
+            for (SelectionScript selectionScript : selectionScripts) {
+                task.addSelectionScript(selectionScript);
+            }
+            for (int j = 0; j < genericInformationKeys.length; j++) {
+                task.addGenericInformation(genericInformationKeys[j], genericInformationValues[j]);
+            }
+            task.setRunAsMe(runAsMe);
+            if (wallTime > -1) {
+                task.setWallTime(wallTime);
+            }
+        }
+        for (int i = 0; i < dependencyIndexes.length; i++) {
+            tasks[dependencyIndexes[i]].addDependence(dependencies[i]);
+        }
+    }
+
+    /**
+     * Sets the value of a string variable assigned in the scripts of the tasks,
+     * by replacing its assignment line <code>variable &lt;- "value"</code>
+     */
+    public static void setScriptVariable(Task[] tasks, String variable, String value)
+            throws InvalidScriptException {
+        Pattern assignment = Pattern.compile(Pattern.quote(variable) + " <- \"[a-z0-9]*\"");
+        String line = Matcher.quoteReplacement(variable + " <- \"" + value + "\"");
+        for (Task task : tasks) {
+            if (!(task instanceof ScriptTask) || ((ScriptTask) task).getScript() == null) {
+                continue;
+            }
+            TaskScript script = ((ScriptTask) task).getScript();
+            String replaced = assignment.matcher(script.getScript()).replaceFirst(line);
+            ((ScriptTask) task).setScript(new TaskScript(new SimpleScript(replaced, script.getEngineName())));
+        }
+    }
+
+    /**
+     * Adds R code at the beginning of the scripts of the tasks
+     */
+    public static void prependScript(Task[] tasks, String code) throws InvalidScriptException {
+        for (Task task : tasks) {
+            if (!(task instanceof ScriptTask) || ((ScriptTask) task).getScript() == null) {
+                continue;
+            }
+            TaskScript script = ((ScriptTask) task).getScript();
+            ((ScriptTask) task).setScript(new TaskScript(new SimpleScript(code + script.getScript(), script
+                    .getEngineName())));
+        }
+    }
+
+    /**
+     * Adds the tasks to the job with their input and output files
+     */
+    public static void addTasks(TaskFlowJob job, Task[] tasks, int[] fileIndexes, String[] fileSelectors,
+            String[] fileSpaces, boolean[] inputFiles) throws UserException {
+        for (int i = 0; i < fileIndexes.length; i++) {
+            Task task = tasks[fileIndexes[i]];
+            if (inputFiles[i]) {
+                task.addInputFiles(fileSelectors[i], inputAccessMode(fileSpaces[i]));
+            } else {
+                task.addOutputFiles(fileSelectors[i], outputAccessMode(fileSpaces[i]));
+            }
+        }
+        for (Task task : tasks) {
+            job.addTask(task);
+        }
+    }
+
+    static InputAccessMode inputAccessMode(String space) {
+        String upper = space.toUpperCase();
+        if (upper.equals("INPUT")) {
+            return InputAccessMode.getAccessMode("transferFromInputSpace");
+        } else if (upper.equals("OUTPUT")) {
+            return InputAccessMode.getAccessMode("transferFromOutputSpace");
+        } else if (upper.equals("GLOBAL")) {
+            return InputAccessMode.getAccessMode("transferFromGlobalSpace");
+        } else if (upper.equals("USER")) {
+            return InputAccessMode.getAccessMode("transferFromUserSpace");
+        }
+        throw new IllegalArgumentException("Unknown data space : " + space);
+    }
+
+    static OutputAccessMode outputAccessMode(String space) {
+        String upper = space.toUpperCase();
+        if (upper.equals("OUTPUT")) {
+            return OutputAccessMode.getAccessMode("transferToOutputSpace");
+        } else if (upper.equals("GLOBAL")) {
+            return OutputAccessMode.getAccessMode("transferToGlobalSpace");
+        } else if (upper.equals("USER")) {
+            return OutputAccessMode.getAccessMode("transferToUserSpace");
+        }
+        throw new IllegalArgumentException("Unknown data space : " + space);
+    }
+}
@@ -0,0 +1,224 @@
+package org.ow2.parconnector.local;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ow2.proactive.scheduler.common.job.JobId;
+import org.ow2.proactive.scheduler.common.job.JobState;
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.task.Task;
+import org.ow2.proactive.scheduler.common.task.TaskResult;
+import org.ow2.proactive.scheduler.common.task.TaskState;
+
+
+/**
+ * The state of a job run by the {@link LocalScheduler}. The methods are called
+ * with the lock of the scheduler held.
+ *
+ * @author Activeeon Team
+ */
+class LocalJob {
+
+    static final String PENDING = "Pending";
+    static final String SUBMITTED = "Submitted";
+    static final String RUNNING = "Running";
+    static final String FINISHED = "Finished";
+    static final String FAULTY = "Faulty";
+    static final String ABORTED = "Aborted";
+    static final String KILLED = "Killed";
+    static final String CANCELED = "Canceled";
+
+    private final String id;
+
+    private final TaskFlowJob job;
+
+    private final File dir;
+
+    private final Map<String, Task> tasks = new LinkedHashMap<String, Task>();
+
+    private final Map<String, String> statuses = new HashMap<String, String>();
+
+    private final Map<String, TaskResult> results = new HashMap<String, TaskResult>();
+
+    private final Map<String, LocalWorker> workers = new HashMap<String, LocalWorker>();
+
+    private final Map<String, Long> startTimes = new HashMap<String, Long>();
+
+    private final Map<String, Long> finishedTimes = new HashMap<String, Long>();
+
+    private String status = PENDING;
+
+    LocalJob(String id, TaskFlowJob job, File dir) {
+        this.id = id;
+        this.job = job;
+        this.dir = dir;
+        for (Task task : job.getTasks()) {
+            tasks.put(task.getName(), task);
+            statuses.put(task.getName(), PENDING);
+        }
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getName() {
+        return job.getName();
+    }
+
+    File getDir() {
+        return dir;
+    }
+
+    String getStatus() {
+        return status;
+    }
+
+    String getTaskStatus(String taskName) {
+        String taskStatus = statuses.get(taskName);
+        return taskStatus == null ? "" : taskStatus;
+    }
+
+    boolean isAlive() {
+        for (String taskStatus : statuses.values()) {
+            if (PENDING.equals(taskStatus) || SUBMITTED.equals(taskStatus) || RUNNING.equals(taskStatus)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    JobState getState() {
+        JobId jobId = LocalScheduler.jobId(id, getName());
+        List<TaskState> states = new ArrayList<TaskState>();
+        for (String taskName : tasks.keySet()) {
+            states.add(LocalJobState.task(jobId, states.size(), taskName, statuses.get(taskName), time(
+                    startTimes, taskName), time(finishedTimes, taskName)));
+        }
+        return new LocalJobState(jobId, getName(), status, states);
+    }
+
+    TaskResult getResult(String taskName) {
+        return results.get(taskName);
+    }
+
+    boolean hasResults(List<String> taskNames) {
+        for (String taskName : taskNames) {
+            if (!results.containsKey(taskName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The pending tasks whose dependencies are finished are marked as submitted
+     * and returned, the pending tasks depending on a failed task fail
+     */
+    List<Task> nextTasks() {
+        List<Task> next = new ArrayList<Task>();
+        boolean failed;
+        do {
+            failed = false;
+            for (Task task : tasks.values()) {
+                if (!PENDING.equals(statuses.get(task.getName()))) {
+                    continue;
+                }
+                String failedDependency = null;
+                boolean ready = true;
+                for (Task dependency : task.getDependencesList()) {
+                    String dependencyStatus = statuses.get(dependency.getName());
+                    if (!FINISHED.equals(dependencyStatus)) {
+                        ready = false;
+                    }
+                    if (FAULTY.equals(dependencyStatus) || ABORTED.equals(dependencyStatus)) {
+                        failedDependency = dependency.getName();
+                    }
+                }
+                if (failedDependency != null) {
+                    end(task.getName(), ABORTED, LocalTaskResult.failure(task.getName(), new IllegalStateException(
+                        "The task " + failedDependency + " it depends on failed"), ""));
+                    failed = true;
+                } else if (ready) {
+                    statuses.put(task.getName(), SUBMITTED);
+                    next.add(task);
+                }
+            }
+            // the failure propagates to the tasks depending on the aborted tasks
+        } while (failed);
+        if (!next.isEmpty()) {
+            status = RUNNING;
+        }
+        return next;
+    }
+
+    /**
+     * @return false if the task was killed before it started
+     */
+    boolean start(String taskName, LocalWorker worker) {
+        if (!SUBMITTED.equals(statuses.get(taskName))) {
+            return false;
+        }
+        statuses.put(taskName, RUNNING);
+        startTimes.put(taskName, System.currentTimeMillis());
+        workers.put(taskName, worker);
+        return true;
+    }
+
+    /**
+     * Sets the result of the task unless it was killed
+     */
+    void finish(String taskName, TaskResult result) {
+        workers.remove(taskName);
+        if (!results.containsKey(taskName)) {
+            end(taskName, result.hadException() ? FAULTY : FINISHED, result);
+            if (result.hadException() && job.isCancelJobOnError()) {
+                kill(CANCELED, "The job was canceled after the failure of the task " + taskName);
+            }
+        }
+    }
+
+    /**
+     * @return true if the task was not finished yet
+     */
+    boolean killTask(String taskName) {
+        if (!tasks.containsKey(taskName) || results.containsKey(taskName)) {
+            return false;
+        }
+        LocalWorker worker = workers.remove(taskName);
+        if (worker != null) {
+            worker.destroy();
+        }
+        end(taskName, ABORTED, LocalTaskResult.failure(taskName, new IllegalStateException("The task was killed"),
+                ""));
+        return true;
+    }
+
+    void kill(String jobStatus, String message) {
+        for (String taskName : tasks.keySet()) {
+            if (!results.containsKey(taskName)) {
+                killTask(taskName);
+                results.put(taskName, LocalTaskResult.failure(taskName, new IllegalStateException(message), ""));
+            }
+        }
+        status = jobStatus;
+    }
+
+    private void end(String taskName, String taskStatus, TaskResult result) {
+        statuses.put(taskName, taskStatus);
+        results.put(taskName, result);
+        finishedTimes.put(taskName, System.currentTimeMillis());
+        if (!isAlive() && !KILLED.equals(status) && !CANCELED.equals(status)) {
+            status = FINISHED;
+        }
+    }
+
+    private static long time(Map<String, Long> times, String taskName) {
+        Long time = times.get(taskName);
+        return time == null ? 0 : time;
+    }
+}
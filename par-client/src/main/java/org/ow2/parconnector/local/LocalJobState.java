@@ -0,0 +1,203 @@
+package org.ow2.parconnector.local;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ow2.proactive.scheduler.common.job.JobId;
+import org.ow2.proactive.scheduler.common.job.JobInfo;
+import org.ow2.proactive.scheduler.common.job.JobState;
+import org.ow2.proactive.scheduler.common.job.JobStatus;
+import org.ow2.proactive.scheduler.common.task.TaskId;
+import org.ow2.proactive.scheduler.common.task.TaskState;
+import org.ow2.proactive.scheduler.common.task.TaskStatus;
+
+
+/**
+ * The state of a job run by the {@link LocalScheduler} at the time it was
+ * created: the status of the job, and the status and times of its tasks. Only
+ * the methods read by the R connector are implemented, e.g. by PAJobState(),
+ * PAGetResult() and the cache of the job states.
+ *
+ * @author Activeeon Team
+ */
+final class LocalJobState extends JobState {
+
+    static final String HOST = "localhost";
+
+    private final String name;
+
+    private final JobInfo info;
+
+    private final ArrayList<TaskState> tasks;
+
+    LocalJobState(final JobId id, String name, final String status, List<TaskState> tasks) {
+        this.name = name;
+        this.tasks = new ArrayList<TaskState>(tasks);
+        int pending = 0;
+        int running = 0;
+        int finished = 0;
+        for (TaskState task : tasks) {
+            if (task.getStatus() == TaskStatus.RUNNING) {
+                running++;
+            } else if (task.getStatus().isTaskAlive()) {
+                pending++;
+            } else {
+                finished++;
+            }
+        }
+        final int[] counts = { pending, running, finished };
+        this.info = (JobInfo) Proxy.newProxyInstance(LocalJobState.class.getClassLoader(),
+                new Class<?>[] { JobInfo.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "getJobId":
+                                return id;
+                            case "getStatus":
+                                return JobStatus.valueOf(status.toUpperCase());
+                            case "getNumberOfPendingTasks":
+                                return counts[0];
+                            case "getNumberOfRunningTasks":
+                                return counts[1];
+                            case "getNumberOfFinishedTasks":
+                                return counts[2];
+                            case "getTotalNumberOfTasks":
+                                return counts[0] + counts[1] + counts[2];
+                            case "toString":
+                                return id + " : " + status;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                throw new UnsupportedOperationException(method.getName() +
+                                    " is not supported by the jobs of the local scheduler");
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public JobInfo getJobInfo() {
+        return info;
+    }
+
+    @Override
+    public ArrayList<TaskState> getTasks() {
+        return tasks;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOwner() {
+        return System.getProperty("user.name");
+    }
+
+    /**
+     * @param index position of the task in the job, its id
+     */
+    static TaskState task(JobId jobId, int index, String name, String status, long startTime, long finishedTime) {
+        return new LocalTaskState(taskId(jobId, index, name), name, TaskStatus.valueOf(status.toUpperCase()),
+            startTime, finishedTime);
+    }
+
+    private static TaskId taskId(final JobId jobId, final int index, final String name) {
+        return (TaskId) Proxy.newProxyInstance(LocalJobState.class.getClassLoader(),
+                new Class<?>[] { TaskId.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "value":
+                            case "toString":
+                                return String.valueOf(index);
+                            case "getReadableName":
+                                return name;
+                            case "getJobId":
+                                return jobId;
+                            case "getIterationIndex":
+                            case "getReplicationIndex":
+                                return 0;
+                            case "hashCode":
+                                return index;
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    }
+                });
+    }
+
+    private static final class LocalTaskState extends TaskState {
+
+        private final TaskId id;
+
+        private final String name;
+
+        private final TaskStatus status;
+
+        private final long startTime;
+
+        private final long finishedTime;
+
+        private LocalTaskState(TaskId id, String name, TaskStatus status, long startTime, long finishedTime) {
+            this.id = id;
+            this.name = name;
+            this.status = status;
+            this.startTime = startTime;
+            this.finishedTime = finishedTime;
+        }
+
+        @Override
+        public TaskId getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public TaskStatus getStatus() {
+            return status;
+        }
+
+        @Override
+        public long getStartTime() {
+            return startTime;
+        }
+
+        @Override
+        public long getFinishedTime() {
+            return finishedTime;
+        }
+
+        @Override
+        public long getExecutionDuration() {
+            return startTime > 0 && finishedTime > startTime ? finishedTime - startTime : 0;
+        }
+
+        @Override
+        public String getExecutionHostName() {
+            return startTime > 0 ? HOST : null;
+        }
+
+        @Override
+        public int getNumberOfExecutionLeft() {
+            return status.isTaskAlive() ? 1 : 0;
+        }
+
+        @Override
+        public int getNumberOfExecutionOnFailureLeft() {
+            return status.isTaskAlive() ? 1 : 0;
+        }
+    }
+}
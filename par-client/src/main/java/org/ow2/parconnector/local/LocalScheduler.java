@@ -0,0 +1,599 @@
+package org.ow2.parconnector.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.script.ScriptException;
+
+import org.ow2.proactive.scheduler.common.job.JobId;
+import org.ow2.proactive.scheduler.common.job.JobState;
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.task.ScriptTask;
+import org.ow2.proactive.scheduler.common.task.Task;
+import org.ow2.proactive.scheduler.common.task.TaskResult;
+import org.ow2.proactive.scheduler.common.task.dataspaces.InputSelector;
+import org.ow2.proactive.scheduler.common.task.dataspaces.OutputSelector;
+import org.ow2.proactive.scheduler.rest.ISchedulerClient;
+
+
+/**
+ * Runs the jobs created by the R connector on a pool of local R processes,
+ * without a scheduler, so that small jobs and development runs do not need a
+ * ProActive installation nor the network.
+ * <p>
+ * {@link #client()} returns an {@link ISchedulerClient} implementing the
+ * methods used by the R connector (submission, waits, job states, dataspace
+ * transfers, kills and task logs) with the public methods of this class, the other
+ * methods throw an {@link UnsupportedOperationException}. The same R code
+ * runs locally or on a scheduler.
+ * <p>
+ * The USER and GLOBAL spaces are directories of the root directory, the input
+ * and output spaces are the USER space. Each task runs in its own localspace,
+ * the input files are copied from the spaces before it runs and the output
+ * files are copied back once it is finished. The tasks run when their
+ * dependencies are finished, the results of the dependencies are given to the
+ * script in the <code>results</code> environment as on a node. A worker
+ * process runs one task at a time and keeps its global environment between
+ * tasks, as the R session of a node. Selection scripts and walltimes are
+ * ignored.
+ *
+ * @author Activeeon Team
+ */
+public class LocalScheduler {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String WORKER_SCRIPT = "worker.r";
+
+    private final String rscript;
+
+    private final File userSpace;
+
+    private final File globalSpace;
+
+    private final File jobsDir;
+
+    private final File workerScript;
+
+    private final File workerLog;
+
+    private final ExecutorService executor;
+
+    private final Queue<LocalWorker> idleWorkers = new ConcurrentLinkedQueue<LocalWorker>();
+
+    private final Map<String, LocalJob> jobs = new HashMap<String, LocalJob>();
+
+    private final ISchedulerClient client;
+
+    private int lastJobId;
+
+    /**
+     * @param rscript the Rscript executable
+     * @param workers number of tasks running at the same time
+     * @param rootDir directory of the spaces and of the localspaces of the tasks
+     */
+    public LocalScheduler(String rscript, int workers, String rootDir) throws IOException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+        File root = new File(rootDir);
+        this.rscript = rscript;
+        this.userSpace = directory(root, "user");
+        this.globalSpace = directory(root, "global");
+        this.jobsDir = directory(root, "jobs");
+        this.workerScript = new File(root, WORKER_SCRIPT);
+        this.workerLog = new File(root, "workers.log");
+        InputStream script = LocalScheduler.class.getResourceAsStream(WORKER_SCRIPT);
+        try {
+            Files.copy(script, workerScript.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            script.close();
+        }
+        this.executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "PARConnector local worker " + count.incrementAndGet());
+                // the tasks must not prevent the R session from exiting
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.client = (ISchedulerClient) Proxy.newProxyInstance(LocalScheduler.class.getClassLoader(),
+                new Class<?>[] { ISchedulerClient.class }, new ClientHandler(this));
+    }
+
+    /**
+     * @return the scheduler client running the jobs with this scheduler
+     */
+    public ISchedulerClient client() {
+        return client;
+    }
+
+    /**
+     * @return the local scheduler of the client, or null if it is a client of a scheduler
+     */
+    public static LocalScheduler of(Object client) {
+        if (client != null && Proxy.isProxyClass(client.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(client);
+            if (handler instanceof ClientHandler) {
+                return ((ClientHandler) handler).scheduler;
+            }
+        }
+        return null;
+    }
+
+    public synchronized JobId submit(TaskFlowJob job) {
+        String id = String.valueOf(++lastJobId);
+        String name = job.getName();
+        LocalJob localJob = new LocalJob(id, job, new File(jobsDir, id));
+        jobs.put(id, localJob);
+        schedule(localJob);
+        return jobId(id, name);
+    }
+
+    static JobId jobId(final String id, final String name) {
+        return (JobId) Proxy.newProxyInstance(LocalScheduler.class.getClassLoader(),
+                new Class<?>[] { JobId.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "value":
+                            case "toString":
+                                return id;
+                            case "longValue":
+                                return Long.parseLong(id);
+                            case "getReadableName":
+                                return name;
+                            case "hashCode":
+                                return id.hashCode();
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    }
+                });
+    }
+
+    public synchronized List<Map.Entry<String, TaskResult>> waitForAllTasks(String jobId,
+            List<String> taskNames, long timeout) throws InterruptedException, TimeoutException {
+        LocalJob job = job(jobId);
+        long deadline = deadline(timeout);
+        while (!job.hasResults(taskNames)) {
+            waitUntil(deadline, jobId);
+        }
+        List<Map.Entry<String, TaskResult>> entries = new ArrayList<Map.Entry<String, TaskResult>>();
+        for (String taskName : taskNames) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<String, TaskResult>(taskName, job
+                    .getResult(taskName)));
+        }
+        return entries;
+    }
+
+    public synchronized Map.Entry<String, TaskResult> waitForAnyTask(String jobId, List<String> taskNames,
+            long timeout) throws InterruptedException, TimeoutException {
+        LocalJob job = job(jobId);
+        long deadline = deadline(timeout);
+        while (true) {
+            for (String taskName : taskNames) {
+                TaskResult result = job.getResult(taskName);
+                if (result != null) {
+                    return new AbstractMap.SimpleImmutableEntry<String, TaskResult>(taskName, result);
+                }
+            }
+            waitUntil(deadline, jobId);
+        }
+    }
+
+    /**
+     * @return the result of the task, or null if it is not finished
+     */
+    public synchronized TaskResult getTaskResult(String jobId, String taskName) {
+        return job(jobId).getResult(taskName);
+    }
+
+    public synchronized boolean killTask(String jobId, String taskName) {
+        LocalJob job = job(jobId);
+        boolean killed = job.killTask(taskName);
+        schedule(job);
+        return killed;
+    }
+
+    public synchronized boolean killJob(String jobId) {
+        LocalJob job = job(jobId);
+        boolean alive = job.isAlive();
+        job.kill(LocalJob.KILLED, "The job was killed");
+        notifyAll();
+        return alive;
+    }
+
+    /**
+     * @return the state of the job when the method is called
+     */
+    public synchronized JobState getJobState(String jobId) {
+        return job(jobId).getState();
+    }
+
+    public synchronized String getJobStatus(String jobId) {
+        return job(jobId).getStatus();
+    }
+
+    public synchronized boolean isJobAlive(String jobId) {
+        return job(jobId).isAlive();
+    }
+
+    public synchronized String[] getTaskStatuses(String jobId, String[] taskNames) {
+        LocalJob job = job(jobId);
+        String[] statuses = new String[taskNames.length];
+        for (int i = 0; i < taskNames.length; i++) {
+            statuses[i] = job.getTaskStatus(taskNames[i]);
+        }
+        return statuses;
+    }
+
+    /**
+     * @return the output of the task written so far
+     */
+    public String getTaskServerLogs(String jobId, String taskName) throws IOException {
+        File log = new File(job(jobId).getDir(), taskName + ".log");
+        if (!log.exists()) {
+            return "";
+        }
+        return new String(Files.readAllBytes(log.toPath()), UTF8);
+    }
+
+    /**
+     * @return the bytes of the output of the task written after the given position
+     */
+    public byte[] readTaskLog(String jobId, String taskName, long position) throws IOException {
+        File log = new File(job(jobId).getDir(), taskName + ".log");
+        if (!log.exists() || log.length() <= position) {
+            return new byte[0];
+        }
+        RandomAccessFile file = new RandomAccessFile(log, "r");
+        try {
+            byte[] bytes = new byte[(int) (file.length() - position)];
+            file.seek(position);
+            file.readFully(bytes);
+            return bytes;
+        } finally {
+            file.close();
+        }
+    }
+
+    public boolean pushFile(String space, String pathname, String fileName, String localFile)
+            throws IOException {
+        copy(new File(localFile), new File(new File(space(space), pathname), fileName));
+        return true;
+    }
+
+    public boolean pullFile(String space, String pathname, String outputFile) throws IOException {
+        copy(new File(space(space), pathname), new File(outputFile));
+        return true;
+    }
+
+    public boolean deleteFile(String space, String pathname) throws IOException {
+        return Files.deleteIfExists(new File(space(space), pathname).toPath());
+    }
+
+    public boolean isConnected() {
+        return true;
+    }
+
+    public void disconnect() {
+        shutdown();
+    }
+
+    /**
+     * Stops the worker processes, the jobs still running are killed
+     */
+    public synchronized void shutdown() {
+        for (LocalJob job : jobs.values()) {
+            if (job.isAlive()) {
+                job.kill(LocalJob.KILLED, "The local scheduler was shut down");
+            }
+        }
+        executor.shutdownNow();
+        LocalWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.destroy();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Submits the tasks whose dependencies are finished and wakes up the waits
+     */
+    private void schedule(final LocalJob job) {
+        for (final Task task : job.nextTasks()) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runTask(job, task);
+                }
+            });
+        }
+        notifyAll();
+    }
+
+    private void runTask(LocalJob job, Task task) {
+        String taskName = task.getName();
+        LocalWorker worker = idleWorkers.poll();
+        TaskResult result;
+        try {
+            if (worker == null) {
+                worker = new LocalWorker(rscript, workerScript, workerLog);
+            }
+            synchronized (this) {
+                if (!job.start(taskName, worker)) {
+                    return;
+                }
+            }
+            result = execute(job, task, worker);
+        } catch (Exception e) {
+            result = LocalTaskResult.failure(taskName, e, "");
+        } finally {
+            if (worker != null && worker.isAlive()) {
+                idleWorkers.offer(worker);
+            }
+        }
+        synchronized (this) {
+            job.finish(taskName, result);
+            schedule(job);
+        }
+    }
+
+    private TaskResult execute(LocalJob job, Task task, LocalWorker worker) throws IOException {
+        String taskName = task.getName();
+        File localSpace = directory(job.getDir(), taskName);
+        File log = new File(job.getDir(), taskName + ".log");
+        File result = new File(job.getDir(), taskName + ".result");
+        File error = new File(job.getDir(), taskName + ".error");
+        File script = new File(job.getDir(), taskName + ".script.r");
+        File wrapper = new File(job.getDir(), taskName + ".r");
+        // left by a task of the same name, e.g. when the root directory is reused
+        for (File file : new File[] { log, result, error }) {
+            Files.deleteIfExists(file.toPath());
+        }
+
+        for (InputSelector selector : task.getInputFilesList()) {
+            File space = space(selector.getMode().name());
+            if (space != null) {
+                for (String include : selector.getInputFiles().getIncludes()) {
+                    copyMatching(space, localSpace, include);
+                }
+            }
+        }
+        Files.write(script.toPath(), ((ScriptTask) task).getScript().getScript().getBytes(UTF8));
+        Files.write(wrapper.toPath(), wrapperScript(job, task, localSpace, script, log, result, error)
+                .getBytes(UTF8));
+
+        boolean done = worker.run(wrapper);
+        String logs = log.exists() ? new String(Files.readAllBytes(log.toPath()), UTF8) : "";
+        if (!done) {
+            return LocalTaskResult.failure(taskName, new IllegalStateException(
+                "The R process running the task ended, see " + workerLog), logs);
+        }
+        if (error.exists()) {
+            return LocalTaskResult.failure(taskName, new ScriptException(new String(Files.readAllBytes(error
+                    .toPath()), UTF8).trim()), logs);
+        }
+
+        for (OutputSelector selector : task.getOutputFilesList()) {
+            File space = space(selector.getMode().name());
+            if (space != null) {
+                for (String include : selector.getOutputFiles().getIncludes()) {
+                    copyMatching(localSpace, space, include);
+                }
+            }
+        }
+        if (result.exists()) {
+            return LocalTaskResult.success(taskName, Files.readAllBytes(result.toPath()), logs);
+        }
+        // TaskResult.value() is true by default
+        return LocalTaskResult.success(taskName, Boolean.TRUE, logs);
+    }
+
+    /**
+     * The script evaluated by the worker, it binds the variables given to task
+     * scripts by the R engine, evaluates the task script and writes its result,
+     * its error and its output in files
+     */
+    private String wrapperScript(LocalJob job, Task task, File localSpace, File script, File log, File result,
+            File error) {
+        StringBuilder wrapper = new StringBuilder();
+        wrapper.append(".pa.log <- file(").append(rString(log)).append(", open = \"wt\")\n");
+        wrapper.append("sink(.pa.log)\n");
+        wrapper.append("sink(.pa.log, type = \"message\")\n");
+        wrapper.append("suppressWarnings(rm(list = \"result\", envir = globalenv()))\n");
+        wrapper.append("localspace <- ").append(rString(localSpace)).append("\n");
+        wrapper.append("userspace <- ").append(rString(userSpace)).append("\n");
+        wrapper.append("inputspace <- userspace\n");
+        wrapper.append("outputspace <- userspace\n");
+        wrapper.append("globalspace <- ").append(rString(globalSpace)).append("\n");
+        wrapper.append("set_progress <- function(x) invisible(NULL)\n");
+        wrapper.append("results <- new.env()\n");
+        for (Task dependency : task.getDependencesList()) {
+            String file = rString(new File(job.getDir(), dependency.getName() + ".result"));
+            wrapper.append("delayedAssign(").append(rString(dependency.getName())).append(", if (file.exists(")
+                    .append(file).append(")) readBin(").append(file).append(", \"raw\", file.info(").append(file)
+                    .append(")$size) else NULL, assign.env = results)\n");
+        }
+        wrapper.append("setwd(localspace)\n");
+        wrapper.append("tryCatch({\n");
+        wrapper.append("  .pa.value <- source(").append(rString(script)).append(")$value\n");
+        wrapper.append("  if (exists(\"result\", envir = globalenv(), inherits = FALSE)) {\n");
+        wrapper.append("    .pa.value <- get(\"result\", envir = globalenv())\n");
+        wrapper.append("  }\n");
+        wrapper.append("  if (is.raw(.pa.value)) {\n");
+        wrapper.append("    writeBin(.pa.value, ").append(rString(result)).append(")\n");
+        wrapper.append("  }\n");
+        wrapper.append("}, error = function(e) {\n");
+        wrapper.append("  message(\"Error : \", conditionMessage(e))\n");
+        wrapper.append("  writeLines(conditionMessage(e), ").append(rString(error)).append(")\n");
+        wrapper.append("}, finally = {\n");
+        wrapper.append("  setwd(Sys.getenv(\"HOME\"))\n");
+        wrapper.append("  sink(type = \"message\")\n");
+        wrapper.append("  sink()\n");
+        wrapper.append("  close(.pa.log)\n");
+        wrapper.append("})\n");
+        wrapper.append("rm(list = intersect(c(\".pa.log\", \".pa.value\"), ls(globalenv(), all.names = TRUE)), envir = globalenv())\n");
+        return wrapper.toString();
+    }
+
+    static String rString(File file) {
+        return rString(file.getAbsolutePath().replace('\\', '/'));
+    }
+
+    static String rString(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * @return the directory of a dataspace, given by its name or by the name of an
+     *         access mode, null for the mode none
+     */
+    File space(String name) {
+        String upper = name.toUpperCase();
+        if (upper.equals("NONE")) {
+            return null;
+        }
+        if (upper.contains("GLOBAL")) {
+            return globalSpace;
+        }
+        return userSpace;
+    }
+
+    /**
+     * Copies the files of the source directory matching the pattern, at the same
+     * relative path in the destination directory
+     */
+    static void copyMatching(final File from, final File to, String pattern) throws IOException {
+        final String glob = pattern.replace('\\', '/').replaceFirst("^/+", "");
+        if (!glob.matches(".*[*?\\[{].*")) {
+            File source = new File(from, glob);
+            if (source.isFile()) {
+                copy(source, new File(to, glob));
+            }
+            return;
+        }
+        if (!from.isDirectory()) {
+            return;
+        }
+        final PathMatcher matcher = from.toPath().getFileSystem().getPathMatcher("glob:" + glob);
+        Files.walkFileTree(from.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path relative = from.toPath().relativize(file);
+                if (matcher.matches(relative)) {
+                    copy(file.toFile(), to.toPath().resolve(relative).toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void copy(File source, File destination) throws IOException {
+        File parent = destination.getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        Files.copy(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static File directory(File parent, String name) throws IOException {
+        File dir = new File(parent, name);
+        Files.createDirectories(dir.toPath());
+        return dir;
+    }
+
+    private LocalJob job(String jobId) {
+        LocalJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("Unknown job : " + jobId);
+        }
+        return job;
+    }
+
+    private static long deadline(long timeout) {
+        long now = System.currentTimeMillis();
+        return timeout > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeout;
+    }
+
+    private void waitUntil(long deadline, String jobId) throws InterruptedException, TimeoutException {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            throw new TimeoutException("Timeout reached while waiting for the tasks of job " + jobId);
+        }
+        wait(remaining);
+    }
+
+    /**
+     * Implements the methods of the scheduler client with the public methods of
+     * the scheduler having the same name and number of parameters
+     */
+    private static final class ClientHandler implements InvocationHandler {
+
+        private final LocalScheduler scheduler;
+
+        private ClientHandler(LocalScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            int count = args == null ? 0 : args.length;
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return "Local scheduler (" + scheduler.jobsDir.getParent() + ")";
+                }
+            }
+            for (Method target : LocalScheduler.class.getDeclaredMethods()) {
+                if (target.getName().equals(method.getName()) && target.getParameterTypes().length == count &&
+                    Modifier.isPublic(target.getModifiers()) &&
+                    !Modifier.isStatic(target.getModifiers())) {
+                    try {
+                        return target.invoke(scheduler, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+            throw new UnsupportedOperationException(method.getName() + " is not supported by the local scheduler");
+        }
+    }
+}
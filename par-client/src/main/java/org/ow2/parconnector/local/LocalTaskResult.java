@@ -0,0 +1,93 @@
+package org.ow2.parconnector.local;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.ow2.proactive.scheduler.common.task.TaskLogs;
+import org.ow2.proactive.scheduler.common.task.TaskResult;
+
+
+/**
+ * The result of a task run by the {@link LocalScheduler}. Only the methods read
+ * by the R connector are implemented: the value, the exception and the logs.
+ *
+ * @author Activeeon Team
+ */
+final class LocalTaskResult implements InvocationHandler {
+
+    private final String taskName;
+
+    private final Serializable value;
+
+    private final Throwable exception;
+
+    private final String logs;
+
+    private LocalTaskResult(String taskName, Serializable value, Throwable exception, String logs) {
+        this.taskName = taskName;
+        this.value = value;
+        this.exception = exception;
+        this.logs = logs == null ? "" : logs;
+    }
+
+    static TaskResult success(String taskName, Serializable value, String logs) {
+        return create(new LocalTaskResult(taskName, value, null, logs));
+    }
+
+    static TaskResult failure(String taskName, Throwable exception, String logs) {
+        return create(new LocalTaskResult(taskName, null, exception, logs));
+    }
+
+    private static TaskResult create(LocalTaskResult handler) {
+        return (TaskResult) Proxy.newProxyInstance(LocalTaskResult.class.getClassLoader(),
+                new Class<?>[] { TaskResult.class }, handler);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "value":
+                if (exception != null) {
+                    throw exception;
+                }
+                return value;
+            case "hadException":
+                return exception != null;
+            case "getException":
+                return exception;
+            case "getOutput":
+                return Proxy.newProxyInstance(LocalTaskResult.class.getClassLoader(),
+                        new Class<?>[] { TaskLogs.class }, new InvocationHandler() {
+                            @Override
+                            public Object invoke(Object proxy, Method method, Object[] args) {
+                                switch (method.getName()) {
+                                    case "getAllLogs":
+                                    case "getStdoutLogs":
+                                    case "toString":
+                                        return logs;
+                                    case "getStderrLogs":
+                                        return "";
+                                    case "hashCode":
+                                        return System.identityHashCode(proxy);
+                                    case "equals":
+                                        return proxy == args[0];
+                                    default:
+                                        throw new UnsupportedOperationException(method.getName());
+                                }
+                            }
+                        });
+            case "getTextualDescription":
+            case "toString":
+                return exception != null ? taskName + " : " + exception : taskName + " : " + value;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                throw new UnsupportedOperationException(method.getName() +
+                    " is not supported by the results of the local scheduler");
+        }
+    }
+}
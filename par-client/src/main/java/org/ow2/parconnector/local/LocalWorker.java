@@ -0,0 +1,85 @@
+package org.ow2.parconnector.local;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.UUID;
+
+
+/**
+ * An R process running the tasks of the {@link LocalScheduler} one after the
+ * other. The process reads the path of a task script and a token on its
+ * standard input and writes the token once the script is evaluated, so R is
+ * started once per worker instead of once per task. The token is generated for
+ * each run, the output written by a task on the standard output of the
+ * process, e.g. by a system command, cannot end the run.
+ *
+ * @author Activeeon Team
+ */
+class LocalWorker {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Process process;
+
+    private final BufferedWriter input;
+
+    private final BufferedReader output;
+
+    private boolean ended;
+
+    LocalWorker(String rscript, File workerScript, File errorLog) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(rscript, workerScript.getAbsolutePath());
+        builder.redirectError(ProcessBuilder.Redirect.appendTo(errorLog));
+        this.process = builder.start();
+        this.input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), UTF8));
+        this.output = new BufferedReader(new InputStreamReader(process.getInputStream(), UTF8));
+    }
+
+    /**
+     * @return false if the process ended before the end of the script, e.g. when the task was killed
+     */
+    boolean run(File script) {
+        String token = UUID.randomUUID().toString();
+        try {
+            input.write(script.getAbsolutePath());
+            input.newLine();
+            input.write(token);
+            input.newLine();
+            input.flush();
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (token.equals(line)) {
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            // the process was destroyed
+        }
+        ended = true;
+        return false;
+    }
+
+    /**
+     * @return false if the process ended, it cannot run other tasks
+     */
+    boolean isAlive() {
+        if (ended) {
+            return false;
+        }
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    void destroy() {
+        process.destroy();
+    }
+}
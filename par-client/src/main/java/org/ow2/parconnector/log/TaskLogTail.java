@@ -0,0 +1,204 @@
+package org.ow2.parconnector.log;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.ow2.parconnector.local.LocalScheduler;
+import org.ow2.proactive.scheduler.common.task.Log4JTaskLogs;
+import org.ow2.proactive.scheduler.common.util.logforwarder.LogForwardingService;
+import org.ow2.proactive.scheduler.rest.ISchedulerClient;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+
+/**
+ * Follows the logs of the tasks of a job while they run. Each read returns,
+ * for each task, the log text appended since the previous read, so that R only
+ * receives the new lines.
+ * <p>
+ * The output of the running tasks is forwarded by the scheduler once
+ * {@link #listen()} registered the tail with
+ * {@link ISchedulerClient#listenJobLogs(String, org.ow2.proactive.scheduler.common.util.logforwarder.AppenderProvider)},
+ * each line is received once and appended to the log of its task. The tasks
+ * of the {@link LocalScheduler} write their output in a file, only the bytes
+ * written since the previous read are read from it.
+ * <p>
+ * The offsets are numbers of characters received, a read returns at most
+ * <code>maxChars</code> characters per task, the rest is returned by the next
+ * reads.
+ *
+ * @author Activeeon Team
+ */
+public class TaskLogTail {
+
+    private static final String FORWARDING_PROVIDER = "org.ow2.proactive.scheduler.common.util.logforwarder.providers.SocketBasedForwardingProvider";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final ISchedulerClient client;
+
+    private final String jobId;
+
+    private final String[] taskNames;
+
+    private final long[] offsets;
+
+    private final Map<String, StringBuilder> logs = new HashMap<String, StringBuilder>();
+
+    private final Map<String, Long> localPositions = new HashMap<String, Long>();
+
+    private LogForwardingService forwarding;
+
+    private LiveLogAppender appender;
+
+    private boolean additivity;
+
+    public TaskLogTail(ISchedulerClient client, String jobId, String[] taskNames) {
+        this.client = client;
+        this.jobId = jobId;
+        this.taskNames = taskNames;
+        this.offsets = new long[taskNames.length];
+        for (String taskName : taskNames) {
+            logs.put(taskName, new StringBuilder());
+        }
+    }
+
+    /**
+     * Starts receiving the output of the tasks of the job
+     */
+    public synchronized void listen() throws Exception {
+        if (appender != null || LocalScheduler.of(client) != null) {
+            return;
+        }
+        forwarding = new LogForwardingService(FORWARDING_PROVIDER);
+        forwarding.initialize();
+        appender = new LiveLogAppender();
+        Logger logger = Logger.getLogger(Log4JTaskLogs.JOB_LOGGER_PREFIX + jobId);
+        additivity = logger.getAdditivity();
+        logger.setAdditivity(false);
+        logger.addAppender(appender);
+        client.listenJobLogs(jobId, forwarding.getAppenderProvider());
+    }
+
+    /**
+     * Stops receiving the output of the tasks, {@link #listen()} can be called again
+     */
+    public synchronized void close() throws Exception {
+        if (appender == null) {
+            return;
+        }
+        Logger logger = Logger.getLogger(Log4JTaskLogs.JOB_LOGGER_PREFIX + jobId);
+        logger.removeAppender(appender);
+        logger.setAdditivity(additivity);
+        appender = null;
+        try {
+            forwarding.terminate();
+        } finally {
+            forwarding = null;
+        }
+    }
+
+    /**
+     * @return the new log text of each task, empty if nothing was appended
+     */
+    public String[] read(int maxChars) throws Exception {
+        String[] texts = new String[taskNames.length];
+        for (int i = 0; i < taskNames.length; i++) {
+            Part part = readFrom(taskNames[i], offsets[i], maxChars);
+            texts[i] = part.getText();
+            offsets[i] = part.getNextOffset();
+        }
+        return texts;
+    }
+
+    public long[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Reads the log of a task from the given offset
+     */
+    public Part readFrom(String taskName, long offset, int maxChars) throws Exception {
+        synchronized (this) {
+            readLocalLog(taskName);
+            StringBuilder log = logs.get(taskName);
+            if (log == null) {
+                return new Part("", 0);
+            }
+            // the offset was not given by this tail, the log is read from the start
+            int start = offset > log.length() ? 0 : (int) offset;
+            int end = (int) Math.min(log.length(), (long) start + maxChars);
+            return new Part(log.substring(start, end), end);
+        }
+    }
+
+    synchronized void append(String taskName, String text) {
+        StringBuilder log = logs.get(taskName);
+        if (log != null && text != null) {
+            log.append(text);
+        }
+    }
+
+    /**
+     * Appends the bytes written in the log file of a local task since the previous read,
+     * called with the lock of the tail held
+     */
+    private void readLocalLog(String taskName) throws Exception {
+        LocalScheduler local = LocalScheduler.of(client);
+        if (local == null) {
+            return;
+        }
+        Long position = localPositions.get(taskName);
+        byte[] bytes = local.readTaskLog(jobId, taskName, position == null ? 0 : position);
+        localPositions.put(taskName, (position == null ? 0 : position) + bytes.length);
+        append(taskName, new String(bytes, UTF8));
+    }
+
+    /**
+     * A part of the log of a task and the offset of the next read
+     */
+    public static final class Part {
+
+        private final String text;
+
+        private final long nextOffset;
+
+        Part(String text, long nextOffset) {
+            this.text = text;
+            this.nextOffset = nextOffset;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public long getNextOffset() {
+            return nextOffset;
+        }
+    }
+
+    /**
+     * Appends the lines forwarded by the scheduler to the logs of their tasks
+     */
+    private class LiveLogAppender extends AppenderSkeleton {
+
+        @Override
+        protected void append(LoggingEvent event) {
+            Object taskName = event.getMDC(Log4JTaskLogs.MDC_TASK_NAME);
+            if (taskName != null) {
+                TaskLogTail.this.append(taskName.toString(), event.getRenderedMessage() + "\n");
+            }
+        }
+
+        @Override
+        public boolean requiresLayout() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.ow2.parconnector.result;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.ow2.proactive.scheduler.common.task.TaskLogs;
+import org.ow2.proactive.scheduler.common.task.TaskResult;
+
+
+/**
+ * The results of a list of tasks as flat arrays, so that R reads the results,
+ * logs and exception flags of a whole job in a few calls instead of several
+ * calls per task.
+ * <p>
+ * The serialized R results are concatenated in a single byte array, the
+ * result of the task i starts at {@link #getOffsets()}[i] and its length is
+ * {@link #getLengths()}[i]. The length is -1 if the task has no result yet,
+ * failed, or if its value is not a byte array (e.g. a reference to a spilled
+ * result), in which case the value is read with {@link #getValue(int)}.
+ * <p>
+ * Serialized results larger than {@link #INLINE_LIMIT_PROPERTY} bytes are not
+ * concatenated, as R would copy them again to extract them. They are flagged
+ * in {@link #getLarge()} and read one by one with
+ * {@link #getSerializedValue(int)}, which R copies once into a raw vector.
+ * The results which would make the concatenation larger than
+ * {@link #BATCH_LIMIT_PROPERTY} bytes are read the same way.
+ *
+ * @author Activeeon Team
+ */
+public class ResultBatch {
+
+    /** Size in bytes above which a serialized result is not concatenated */
+    public static final String INLINE_LIMIT_PROPERTY = "parconnector.result.inline.limit";
+
+    /** Size in bytes of the concatenated results above which the next results are read one by one */
+    public static final String BATCH_LIMIT_PROPERTY = "parconnector.result.batch.limit";
+
+    /** Largest array size supported by the virtual machines */
+    private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final byte[] NOT_SERIALIZED = new byte[0];
+
+    private final TaskResult[] results;
+
+    private final boolean[] available;
+
+    private final boolean[] exceptions;
+
+    private final String[] logs;
+
+    private final int[] offsets;
+
+    private final int[] lengths;
+
+    private final Serializable[] others;
+
+    private final byte[] values;
+
+    private final boolean[] large;
+
+    private final byte[][] serialized;
+
+    public ResultBatch(Map<String, TaskResult> results, String[] taskNames) {
+        int n = taskNames.length;
+        this.results = new TaskResult[n];
+        this.available = new boolean[n];
+        this.exceptions = new boolean[n];
+        this.logs = new String[n];
+        this.offsets = new int[n];
+        this.lengths = new int[n];
+        this.others = new Serializable[n];
+        this.large = new boolean[n];
+        this.serialized = new byte[n][];
+
+        long inlineLimit = Long.getLong(INLINE_LIMIT_PROPERTY, 1 << 20);
+        long batchLimit = Math.min(Long.getLong(BATCH_LIMIT_PROPERTY, 256 << 20), MAX_ARRAY_SIZE);
+        byte[][] inline = new byte[n][];
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            TaskResult result = results.get(taskNames[i]);
+            this.results[i] = result;
+            this.lengths[i] = -1;
+            this.logs[i] = "";
+            if (result == null) {
+                continue;
+            }
+            this.available[i] = true;
+            this.exceptions[i] = result.hadException();
+            TaskLogs output = result.getOutput();
+            String log = output == null ? null : output.getAllLogs(true);
+            if (log != null) {
+                this.logs[i] = log;
+            }
+            if (this.exceptions[i]) {
+                continue;
+            }
+            Serializable value;
+            try {
+                value = result.value();
+            } catch (Throwable t) {
+                this.exceptions[i] = true;
+                continue;
+            }
+            if (value instanceof byte[] &&
+                (((byte[]) value).length > inlineLimit || total + ((byte[]) value).length > batchLimit)) {
+                this.large[i] = true;
+                this.serialized[i] = (byte[]) value;
+            } else if (value instanceof byte[]) {
+                inline[i] = (byte[]) value;
+                this.offsets[i] = (int) total;
+                this.lengths[i] = ((byte[]) value).length;
+                total += this.lengths[i];
+            } else {
+                this.others[i] = value;
+            }
+        }
+
+        this.values = new byte[(int) total];
+        for (int i = 0; i < n; i++) {
+            if (inline[i] != null) {
+                System.arraycopy(inline[i], 0, this.values, this.offsets[i], this.lengths[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the serialized R result of the task, or an empty array if its
+     *         value is not a byte array, the serialization of an R object is
+     *         never empty
+     */
+    public static byte[] serializedValue(TaskResult result) {
+        try {
+            Serializable value = result.value();
+            if (value instanceof byte[]) {
+                return (byte[]) value;
+            }
+        } catch (Throwable t) {
+            // the value is read again by the caller to report the failure
+        }
+        return NOT_SERIALIZED;
+    }
+
+    /**
+     * Adds the entries returned by a wait method of the scheduler client to
+     * the results, keyed by task name
+     */
+    public static void putAll(Map<String, TaskResult> results, List<Map.Entry<String, TaskResult>> entries) {
+        for (Map.Entry<String, TaskResult> entry : entries) {
+            results.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * @return the names of the tasks which do not have a result yet, in the given order
+     */
+    public static List<String> missingTasks(Map<String, TaskResult> results, String[] taskNames) {
+        List<String> missing = new ArrayList<String>();
+        for (String taskName : taskNames) {
+            if (results.get(taskName) == null) {
+                missing.add(taskName);
+            }
+        }
+        return missing;
+    }
+
+    public static String[] missingTaskNames(Map<String, TaskResult> results, String[] taskNames) {
+        List<String> missing = missingTasks(results, taskNames);
+        return missing.toArray(new String[missing.size()]);
+    }
+
+    public boolean[] getAvailable() {
+        return available;
+    }
+
+    public boolean[] getExceptions() {
+        return exceptions;
+    }
+
+    public String[] getLogs() {
+        return logs;
+    }
+
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    public int[] getLengths() {
+        return lengths;
+    }
+
+    public byte[] getValues() {
+        return values;
+    }
+
+    public boolean[] getLarge() {
+        return large;
+    }
+
+    public byte[] getSerializedValue(int i) {
+        return serialized[i];
+    }
+
+    public Serializable getValue(int i) {
+        return others[i];
+    }
+
+    public TaskResult getTaskResult(int i) {
+        return results[i];
+    }
+}
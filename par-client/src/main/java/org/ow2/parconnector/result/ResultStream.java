@@ -0,0 +1,160 @@
+package org.ow2.parconnector.result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.ow2.parconnector.transfer.FileTransfer;
+import org.ow2.parconnector.transfer.FileTransferManager;
+import org.ow2.proactive.scheduler.common.task.TaskResult;
+import org.ow2.proactive.scheduler.rest.ISchedulerClient;
+
+
+/**
+ * Delivers the results of a job as its tasks finish.
+ * <p>
+ * A background thread waits for the tasks and, as soon as one finishes, starts
+ * the download of its output files on the {@link FileTransferManager}. The R
+ * client consumes the results with {@link #nextResult(long)} and can process a result
+ * while the next ones are still running or being downloaded.
+ *
+ * @author Activeeon Team
+ */
+public class ResultStream {
+
+    /** Maximum time spent in a single call to the scheduler, to notice the closing of the stream */
+    public static final long WAIT_TIMEOUT = 10000;
+
+    private final ISchedulerClient client;
+
+    private final FileTransferManager transfers;
+
+    private final String jobId;
+
+    private final Set<String> pending;
+
+    private final Map<String, List<String[]>> outputFiles = new HashMap<String, List<String[]>>();
+
+    private final BlockingQueue<Object> completed = new LinkedBlockingQueue<Object>();
+
+    private int remaining;
+
+    private Thread waiter;
+
+    private volatile boolean closed;
+
+    public ResultStream(ISchedulerClient client, FileTransferManager transfers, String jobId,
+            String[] taskNames) {
+        this.client = client;
+        this.transfers = transfers;
+        this.jobId = jobId;
+        this.pending = new LinkedHashSet<String>(Arrays.asList(taskNames));
+        this.remaining = pending.size();
+    }
+
+    /**
+     * Registers an output file pulled as soon as the task finishes, must be called before {@link #start()}
+     */
+    public void addOutputFile(String taskName, String space, String pathname, String localFile) {
+        List<String[]> files = outputFiles.get(taskName);
+        if (files == null) {
+            files = new ArrayList<String[]>();
+            outputFiles.put(taskName, files);
+        }
+        files.add(new String[] { space, pathname, localFile });
+    }
+
+    public synchronized void start() {
+        if (waiter != null) {
+            return;
+        }
+        waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                waitForTasks();
+            }
+        }, "PARConnector results of job " + jobId);
+        waiter.setDaemon(true);
+        waiter.start();
+    }
+
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    /**
+     * Waits for the next finished task and for the download of its output files
+     *
+     * @param timeout maximum time to wait in milliseconds
+     * @return the result, or null if no task finished before the timeout
+     * @throws Exception if waiting for the tasks or transferring the output files failed
+     */
+    public StreamedResult nextResult(long timeout) throws Exception {
+        if (!hasNext()) {
+            return null;
+        }
+        start();
+        Object next = completed.poll(timeout, TimeUnit.MILLISECONDS);
+        if (next == null) {
+            return null;
+        }
+        if (next instanceof Exception) {
+            // the next calls report the same failure
+            completed.add(next);
+            throw (Exception) next;
+        }
+        remaining--;
+        StreamedResult result = (StreamedResult) next;
+        FileTransferManager.await(result.getOutputFiles());
+        return result;
+    }
+
+    public void close() {
+        closed = true;
+        if (waiter != null) {
+            waiter.interrupt();
+        }
+    }
+
+    private void waitForTasks() {
+        try {
+            while (!pending.isEmpty() && !closed) {
+                Map.Entry<String, TaskResult> entry;
+                try {
+                    entry = client.waitForAnyTask(jobId, new ArrayList<String>(pending), WAIT_TIMEOUT);
+                } catch (TimeoutException e) {
+                    continue;
+                }
+                String taskName = entry.getKey();
+                pending.remove(taskName);
+                completed.add(new StreamedResult(taskName, entry.getValue(), pullOutputFiles(taskName,
+                        entry.getValue())));
+            }
+        } catch (Exception e) {
+            if (!closed) {
+                completed.add(e);
+            }
+        }
+    }
+
+    private FileTransfer[] pullOutputFiles(String taskName, TaskResult result) {
+        List<String[]> files = outputFiles.get(taskName);
+        if (files == null || result.hadException()) {
+            return new FileTransfer[0];
+        }
+        FileTransfer[] pulls = new FileTransfer[files.size()];
+        for (int i = 0; i < pulls.length; i++) {
+            String[] file = files.get(i);
+            pulls[i] = transfers.pull(file[0], file[1], file[2]);
+        }
+        return pulls;
+    }
+}
@@ -0,0 +1,54 @@
+package org.ow2.parconnector.result;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.ow2.proactive.scheduler.common.task.TaskResult;
+
+
+/**
+ * The result of a task which was not submitted as its result was saved by a
+ * previous run, see PAMemoize(). The value is the serialized R result, the
+ * task has no logs.
+ *
+ * @author Activeeon Team
+ */
+public final class SavedTaskResult implements InvocationHandler {
+
+    private final String taskName;
+
+    private final byte[] value;
+
+    private SavedTaskResult(String taskName, byte[] value) {
+        this.taskName = taskName;
+        this.value = value;
+    }
+
+    public static TaskResult of(String taskName, byte[] value) {
+        return (TaskResult) Proxy.newProxyInstance(SavedTaskResult.class.getClassLoader(),
+                new Class<?>[] { TaskResult.class }, new SavedTaskResult(taskName, value));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "value":
+                return value;
+            case "hadException":
+                return false;
+            case "getException":
+            case "getOutput":
+                return null;
+            case "getTextualDescription":
+            case "toString":
+                return taskName + " : saved result";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                throw new UnsupportedOperationException(method.getName() + " is not supported by saved results");
+        }
+    }
+}
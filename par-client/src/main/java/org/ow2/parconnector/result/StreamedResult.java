@@ -0,0 +1,38 @@
+package org.ow2.parconnector.result;
+
+import org.ow2.parconnector.transfer.FileTransfer;
+import org.ow2.proactive.scheduler.common.task.TaskResult;
+
+
+/**
+ * A task result delivered by a {@link ResultStream}, with the transfers of its
+ * output files.
+ *
+ * @author Activeeon Team
+ */
+public class StreamedResult {
+
+    private final String taskName;
+
+    private final TaskResult taskResult;
+
+    private final FileTransfer[] outputFiles;
+
+    StreamedResult(String taskName, TaskResult taskResult, FileTransfer[] outputFiles) {
+        this.taskName = taskName;
+        this.taskResult = taskResult;
+        this.outputFiles = outputFiles;
+    }
+
+    public String getTaskName() {
+        return taskName;
+    }
+
+    public TaskResult getTaskResult() {
+        return taskResult;
+    }
+
+    public FileTransfer[] getOutputFiles() {
+        return outputFiles;
+    }
+}
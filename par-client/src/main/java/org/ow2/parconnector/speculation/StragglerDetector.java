@@ -0,0 +1,149 @@
+package org.ow2.parconnector.speculation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ow2.proactive.scheduler.common.job.JobState;
+import org.ow2.proactive.scheduler.common.task.TaskState;
+import org.ow2.proactive.scheduler.common.task.TaskStatus;
+
+
+/**
+ * Finds the running tasks of a job which should be duplicated by the
+ * speculative mode of PASolve().
+ * <p>
+ * Once a fraction <code>minFinished</code> of the tasks is finished, a task
+ * running for more than <code>factor</code> times the median duration of the
+ * finished tasks is a straggler. Each task is reported once.
+ *
+ * @author Activeeon Team
+ */
+public class StragglerDetector {
+
+    public static final double DEFAULT_MIN_FINISHED = 0.75;
+    public static final double DEFAULT_FACTOR = 2;
+
+    private final double minFinished;
+
+    private final double factor;
+
+    private final Set<String> reported = new HashSet<String>();
+
+    public StragglerDetector() {
+        this(DEFAULT_MIN_FINISHED, DEFAULT_FACTOR);
+    }
+
+    public StragglerDetector(double minFinished, double factor) {
+        this.minFinished = minFinished;
+        this.factor = factor;
+    }
+
+    /**
+     * @return the names of the tasks which became stragglers since the previous call
+     */
+    public String[] stragglers(JobState state, String[] taskNames) {
+        Map<String, TaskState> tasks = tasks(state, taskNames);
+        long now = currentTime();
+        List<Long> durations = new ArrayList<Long>();
+        List<String> running = new ArrayList<String>();
+        List<Long> elapsed = new ArrayList<Long>();
+        for (TaskState task : tasks.values()) {
+            if (task.getStatus() == TaskStatus.FINISHED) {
+                durations.add(task.getFinishedTime() - task.getStartTime());
+            } else if (task.getStatus() == TaskStatus.RUNNING && task.getStartTime() > 0) {
+                running.add(task.getName());
+                elapsed.add(now - task.getStartTime());
+            }
+        }
+
+        boolean[] stragglers = isStraggler(toArray(durations), toArray(elapsed), taskNames.length, minFinished,
+                factor);
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < stragglers.length; i++) {
+            if (stragglers[i] && reported.add(running.get(i))) {
+                names.add(running.get(i));
+            }
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * @param durations durations of the finished tasks
+     * @param elapsed times since the start of the running tasks
+     * @param total number of tasks
+     * @return for each running task, whether it is a straggler
+     */
+    static boolean[] isStraggler(long[] durations, long[] elapsed, int total, double minFinished, double factor) {
+        boolean[] stragglers = new boolean[elapsed.length];
+        if (durations.length == 0 || durations.length < minFinished * total) {
+            return stragglers;
+        }
+        double limit = factor * median(durations);
+        for (int i = 0; i < elapsed.length; i++) {
+            stragglers[i] = elapsed[i] > limit;
+        }
+        return stragglers;
+    }
+
+    static double median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        if (sorted.length % 2 == 0) {
+            return (sorted[middle - 1] + sorted[middle]) / 2.0;
+        }
+        return sorted[middle];
+    }
+
+    /**
+     * @return the names of the tasks which are not running nor waiting to run anymore
+     */
+    public static String[] finishedTasks(JobState state, String[] taskNames) {
+        List<String> names = new ArrayList<String>();
+        for (TaskState task : tasks(state, taskNames).values()) {
+            if (!task.getStatus().isTaskAlive()) {
+                names.add(task.getName());
+            }
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * @return the host running the task, or an empty string if it is unknown
+     */
+    public static String executionHost(JobState state, String taskName) {
+        TaskState task = tasks(state, new String[] { taskName }).get(taskName);
+        if (task == null || task.getExecutionHostName() == null) {
+            return "";
+        }
+        return task.getExecutionHostName();
+    }
+
+    protected long currentTime() {
+        return System.currentTimeMillis();
+    }
+
+    private static Map<String, TaskState> tasks(JobState state, String[] taskNames) {
+        Set<String> names = new HashSet<String>(Arrays.asList(taskNames));
+        Map<String, TaskState> tasks = new HashMap<String, TaskState>();
+        for (TaskState task : state.getTasks()) {
+            if (names.contains(task.getName())) {
+                tasks.put(task.getName(), task);
+            }
+        }
+        return tasks;
+    }
+
+    private static long[] toArray(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
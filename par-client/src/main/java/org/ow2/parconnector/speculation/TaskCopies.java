@@ -0,0 +1,57 @@
+package org.ow2.parconnector.speculation;
+
+import java.util.Map;
+
+import org.ow2.proactive.scheduler.common.task.ScriptTask;
+import org.ow2.proactive.scheduler.common.task.dataspaces.InputSelector;
+import org.ow2.proactive.scheduler.common.task.dataspaces.OutputSelector;
+import org.ow2.proactive.scripting.InvalidScriptException;
+import org.ow2.proactive.scripting.SelectionScript;
+import org.ow2.proactive.scripting.SimpleScript;
+import org.ow2.proactive.scripting.TaskScript;
+
+
+/**
+ * Creates the copies of the straggler tasks submitted in separate jobs by the
+ * speculative mode of PASolve().
+ * <p>
+ * The original task belongs to the submitted job and is not modified: the
+ * copy is a new task with the same name, script, files, selection scripts,
+ * generic information and options, and the additional selection scripts,
+ * e.g. to run on another host than the original.
+ *
+ * @author Activeeon Team
+ */
+public class TaskCopies {
+
+    private TaskCopies() {
+    }
+
+    public static ScriptTask copy(ScriptTask task, SelectionScript[] selectionScripts)
+            throws InvalidScriptException {
+        ScriptTask copy = new ScriptTask();
+        copy.setName(task.getName());
+        TaskScript script = task.getScript();
+        copy.setScript(new TaskScript(new SimpleScript(script.getScript(), script.getEngineName())));
+        for (InputSelector selector : task.getInputFilesList()) {
+            copy.addInputFiles(selector.getInputFiles(), selector.getMode());
+        }
+        for (OutputSelector selector : task.getOutputFilesList()) {
+            copy.addOutputFiles(selector.getOutputFiles(), selector.getMode());
+        }
+        for (SelectionScript selectionScript : task.getSelectionScripts()) {
+            copy.addSelectionScript(selectionScript);
+        }
+        for (SelectionScript selectionScript : selectionScripts) {
+            copy.addSelectionScript(selectionScript);
+        }
+        for (Map.Entry<String, String> information : task.getGenericInformation().entrySet()) {
+            copy.addGenericInformation(information.getKey(), information.getValue());
+        }
+        copy.setRunAsMe(task.isRunAsMe());
+        if (task.getWallTime() > 0) {
+            copy.setWallTime(task.getWallTime());
+        }
+        return copy;
+    }
+}
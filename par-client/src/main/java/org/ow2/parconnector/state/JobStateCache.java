@@ -0,0 +1,142 @@
+package org.ow2.parconnector.state;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.ow2.proactive.scheduler.common.job.JobInfo;
+import org.ow2.proactive.scheduler.common.job.JobState;
+import org.ow2.proactive.scheduler.rest.ISchedulerClient;
+
+
+/**
+ * Client side cache of the job states, so that printing the state of a job does
+ * not always go back to the scheduler.
+ * <p>
+ * The state of a job is fetched again only once its refresh delay is expired.
+ * The delay starts at {@link #MIN_DELAY_PROPERTY} and doubles, up to
+ * {@link #MAX_DELAY_PROPERTY}, each time the job is found unchanged, so idle
+ * jobs are polled less and less. The state of a finished job does not change
+ * anymore and is kept until it is invalidated.
+ *
+ * @author Activeeon Team
+ */
+public class JobStateCache {
+
+    public static final String MIN_DELAY_PROPERTY = "parconnector.jobstate.delay.min";
+    public static final String MAX_DELAY_PROPERTY = "parconnector.jobstate.delay.max";
+    public static final long DEFAULT_MIN_DELAY = 1000;
+    public static final long DEFAULT_MAX_DELAY = 30000;
+    public static final int MAX_JOBS = 256;
+
+    private final ISchedulerClient client;
+
+    private final long minDelay;
+
+    private final long maxDelay;
+
+    private final Map<String, CachedState> states = new LinkedHashMap<String, CachedState>(16, 0.75f,
+        true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedState> eldest) {
+            return size() > MAX_JOBS;
+        }
+    };
+
+    private int requests;
+
+    public JobStateCache(ISchedulerClient client) {
+        this(client, Long.getLong(MIN_DELAY_PROPERTY, DEFAULT_MIN_DELAY), Long.getLong(MAX_DELAY_PROPERTY,
+                DEFAULT_MAX_DELAY));
+    }
+
+    public JobStateCache(ISchedulerClient client, long minDelay, long maxDelay) {
+        this.client = client;
+        this.minDelay = minDelay;
+        this.maxDelay = Math.max(minDelay, maxDelay);
+    }
+
+    /**
+     * @return the cached state of the job, fetched from the scheduler if it may be outdated
+     */
+    public synchronized JobState getJobState(String jobId) throws Exception {
+        long now = currentTime();
+        CachedState cached = states.get(jobId);
+        if (cached != null && (cached.finished || now - cached.fetched < cached.delay)) {
+            return cached.state;
+        }
+
+        JobState state = client.getJobState(jobId);
+        requests++;
+        String signature = signature(state);
+        long delay = minDelay;
+        if (cached != null && signature.equals(cached.signature)) {
+            delay = Math.min(maxDelay, cached.delay * 2);
+        }
+        states.put(jobId, new CachedState(state, signature, !isAlive(state), now, delay));
+        return state;
+    }
+
+    /**
+     * @return the state of the job fetched from the scheduler
+     */
+    public synchronized JobState refresh(String jobId) throws Exception {
+        invalidate(jobId);
+        return getJobState(jobId);
+    }
+
+    /**
+     * Forgets the state of a job, to be called when the job is known to have changed
+     */
+    public synchronized void invalidate(String jobId) {
+        states.remove(jobId);
+    }
+
+    public synchronized void clear() {
+        states.clear();
+    }
+
+    /**
+     * @return the number of states fetched from the scheduler
+     */
+    public synchronized int getRequests() {
+        return requests;
+    }
+
+    protected long currentTime() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @return a summary of the state which changes when the job progresses
+     */
+    protected String signature(JobState state) {
+        JobInfo info = state.getJobInfo();
+        return info.getStatus() + ":" + info.getNumberOfPendingTasks() + ":" +
+            info.getNumberOfRunningTasks() + ":" + info.getNumberOfFinishedTasks();
+    }
+
+    protected boolean isAlive(JobState state) {
+        return state.getJobInfo().getStatus().isJobAlive();
+    }
+
+    private static final class CachedState {
+
+        private final JobState state;
+
+        private final String signature;
+
+        private final boolean finished;
+
+        private final long fetched;
+
+        private final long delay;
+
+        CachedState(JobState state, String signature, boolean finished, long fetched, long delay) {
+            this.state = state;
+            this.signature = signature;
+            this.finished = finished;
+            this.fetched = fetched;
+            this.delay = delay;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.ow2.parconnector.transfer;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+
+/**
+ * A push or pull submitted to the {@link FileTransferManager}.
+ *
+ * @author Activeeon Team
+ */
+public class FileTransfer {
+
+    private final String description;
+
+    private final Future<Boolean> future;
+
+    FileTransfer(String description, Future<Boolean> future) {
+        this.description = description;
+        this.future = future;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * @return true if the transfer is done and the scheduler client returned true, without waiting
+     */
+    public boolean isSuccessful() {
+        if (!future.isDone()) {
+            return false;
+        }
+        try {
+            return future.get();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Waits for the end of the transfer
+     *
+     * @return the value returned by the scheduler client
+     * @throws Exception the cause of the failure of the last attempt
+     */
+    public boolean get() throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
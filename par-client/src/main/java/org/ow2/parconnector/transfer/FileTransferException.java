@@ -0,0 +1,13 @@
+package org.ow2.parconnector.transfer;
+
+/**
+ * Thrown when at least one transfer of a bulk push or pull failed.
+ *
+ * @author Activeeon Team
+ */
+public class FileTransferException extends Exception {
+
+    public FileTransferException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
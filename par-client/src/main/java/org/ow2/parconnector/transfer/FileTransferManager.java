@@ -0,0 +1,191 @@
+package org.ow2.parconnector.transfer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ow2.proactive.scheduler.rest.ISchedulerClient;
+
+
+/**
+ * Runs the file transfers between the R client and the dataspaces on a bounded
+ * thread pool, so that many small files are not transferred one round trip at a
+ * time. Failed transfers are retried with an increasing delay.
+ * <p>
+ * The bulk methods are meant to be called from R: the transfers are submitted at
+ * once, the progress is polled with {@link #countDone(FileTransfer[])} and the
+ * errors are raised by {@link #await(FileTransfer[])}.
+ *
+ * @author Activeeon Team
+ */
+public class FileTransferManager {
+
+    public static final String THREADS_PROPERTY = "parconnector.transfer.threads";
+    public static final String RETRIES_PROPERTY = "parconnector.transfer.retries";
+    public static final int DEFAULT_THREADS = 4;
+    public static final int DEFAULT_RETRIES = 3;
+    public static final long RETRY_DELAY = 500;
+
+    private final ISchedulerClient client;
+
+    private final ExecutorService executor;
+
+    private final int retries;
+
+    private final long retryDelay;
+
+    private final AtomicInteger submitted = new AtomicInteger();
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    public FileTransferManager(ISchedulerClient client) {
+        this(client, Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS), Integer.getInteger(
+                RETRIES_PROPERTY, DEFAULT_RETRIES), RETRY_DELAY);
+    }
+
+    public FileTransferManager(ISchedulerClient client, int threads, int retries, long retryDelay) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one transfer thread is required");
+        }
+        this.client = client;
+        this.retries = Math.max(0, retries);
+        this.retryDelay = retryDelay;
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "PARConnector file transfer " + count.incrementAndGet());
+                // the transfers must not prevent the R session from exiting
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Uploads a local file to a dataspace, same arguments as {@link ISchedulerClient#pushFile}
+     */
+    public FileTransfer push(final String space, final String path, final String fileName,
+            final String localFile) {
+        return submit(localFile + " -> " + space + ":" + path + "/" + fileName, new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return client.pushFile(space, path, fileName, localFile);
+            }
+        });
+    }
+
+    /**
+     * Downloads a file of a dataspace, same arguments as {@link ISchedulerClient#pullFile}
+     */
+    public FileTransfer pull(final String space, final String pathname, final String localFile) {
+        return submit(space + ":" + pathname + " -> " + localFile, new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return client.pullFile(space, pathname, localFile);
+            }
+        });
+    }
+
+    public FileTransfer[] pushAll(String space, String[] paths, String[] fileNames, String[] localFiles) {
+        FileTransfer[] transfers = new FileTransfer[localFiles.length];
+        for (int i = 0; i < localFiles.length; i++) {
+            transfers[i] = push(space, paths[i], fileNames[i], localFiles[i]);
+        }
+        return transfers;
+    }
+
+    public FileTransfer[] pullAll(String space, String[] pathnames, String[] localFiles) {
+        FileTransfer[] transfers = new FileTransfer[localFiles.length];
+        for (int i = 0; i < localFiles.length; i++) {
+            transfers[i] = pull(space, pathnames[i], localFiles[i]);
+        }
+        return transfers;
+    }
+
+    /**
+     * @return the number of finished transfers, successful or not
+     */
+    public static int countDone(FileTransfer[] transfers) {
+        int done = 0;
+        for (FileTransfer transfer : transfers) {
+            if (transfer.isDone()) {
+                done++;
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Waits for all the transfers
+     *
+     * @return the values returned by the scheduler client
+     * @throws FileTransferException if at least one transfer failed, after all transfers are done
+     */
+    public static boolean[] await(FileTransfer[] transfers) throws FileTransferException {
+        boolean[] results = new boolean[transfers.length];
+        FileTransferException failure = null;
+        for (int i = 0; i < transfers.length; i++) {
+            try {
+                results[i] = transfers[i].get();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = new FileTransferException("Error when transferring " + transfers[i], e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    public int getSubmitted() {
+        return submitted.get();
+    }
+
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * Stops the threads once the submitted transfers are done
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private FileTransfer submit(String description, final Callable<Boolean> transfer) {
+        submitted.incrementAndGet();
+        return new FileTransfer(description, executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                try {
+                    return withRetries(transfer);
+                } finally {
+                    completed.incrementAndGet();
+                }
+            }
+        }));
+    }
+
+    private Boolean withRetries(Callable<Boolean> transfer) throws Exception {
+        int attempt = 0;
+        while (true) {
+            try {
+                return transfer.call();
+            } catch (Exception e) {
+                if (attempt >= retries) {
+                    throw e;
+                }
+                attempt++;
+                Thread.sleep(retryDelay * attempt);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+# Worker process of the local scheduler, the path of a task script and a token are read on two lines of the
+# standard input and the token is written on the standard output once the task is done.
+# The global environment is kept between tasks, as in the R session of a ProActive node.
+local({
+  input <- file("stdin", open = "r")
+  repeat {
+    lines <- readLines(input, n = 2)
+    if (length(lines) < 2) {
+      break
+    }
+    try(source(lines[1]))
+    cat(lines[2], "\n", sep = "")
+    flush(stdout())
+  }
+})
@@ -0,0 +1,61 @@
+package org.ow2.parconnector;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ow2.proactive.scheduler.rest.ISchedulerClient;
+
+
+/**
+ * Scheduler client doing nothing, used to measure the client side cost of the
+ * connector without a scheduler. Every method succeeds: booleans are true,
+ * numbers are 0, strings are "0" and interfaces are stubbed the same way.
+ *
+ * @author Activeeon Team
+ */
+public class StubSchedulerClient implements InvocationHandler {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    public static ISchedulerClient create() {
+        return (ISchedulerClient) stub(ISchedulerClient.class, new StubSchedulerClient());
+    }
+
+    /**
+     * @return the number of calls made to the stubs created by the client
+     */
+    public static int getCalls(Object client) {
+        return ((StubSchedulerClient) Proxy.getInvocationHandler(client)).calls.get();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            } else if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            return "StubSchedulerClient";
+        }
+        calls.incrementAndGet();
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class || type == Boolean.class) {
+            return true;
+        } else if (type == String.class) {
+            return "0";
+        } else if (type.isPrimitive() && type != void.class) {
+            return type == char.class ? (Object) '0' : (Object) 0;
+        } else if (type.isInterface()) {
+            return stub(type, this);
+        }
+        return null;
+    }
+
+    private static Object stub(Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(StubSchedulerClient.class.getClassLoader(), new Class<?>[] { type },
+                handler);
+    }
+}
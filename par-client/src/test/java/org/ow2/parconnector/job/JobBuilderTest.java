@@ -0,0 +1,74 @@
+package org.ow2.parconnector.job;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.task.ScriptTask;
+import org.ow2.proactive.scheduler.common.task.Task;
+import org.ow2.proactive.scripting.SelectionScript;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class JobBuilderTest {
+
+    @Test
+    public void jobIsBuiltFromColumns() throws Exception {
+        ScriptTask[] tasks = JobBuilder.createTasks(new String[] { "t1", "t2", "t3" });
+        assertEquals("t2", tasks[1].getName());
+
+        // t3 depends on t1 and t2
+        JobBuilder.configureTasks(tasks, new String[] { "1", "2", "sum(1, 2)" }, "parscript",
+                new SelectionScript[0], new String[] { "INFO" }, new String[] { "true" }, true, 1000,
+                new int[] { 2, 2 }, new Task[] { tasks[0], tasks[1] });
+
+        for (ScriptTask task : tasks) {
+            assertEquals(Collections.singletonMap("INFO", "true"), task.getGenericInformation());
+            assertTrue(task.isRunAsMe());
+            assertEquals(1000, task.getWallTime());
+        }
+        assertEquals("sum(1, 2)", tasks[2].getScript().getScript());
+        assertEquals(Arrays.<Task> asList(tasks[0], tasks[1]), tasks[2].getDependencesList());
+        assertTrue(tasks[0].getDependencesList().isEmpty());
+
+        TaskFlowJob job = new TaskFlowJob();
+        JobBuilder.addTasks(job, tasks, new int[] { 0, 0, 2 }, new String[] { "in1", "in2", "out" },
+                new String[] { "USER", "GLOBAL", "USER" }, new boolean[] { true, true, false });
+
+        assertEquals(Arrays.<Task> asList(tasks), job.getTasks());
+        assertEquals(2, tasks[0].getInputFilesList().size());
+        assertEquals(1, tasks[2].getOutputFilesList().size());
+    }
+
+    @Test
+    public void scriptVariableIsReplaced() throws Exception {
+        ScriptTask[] tasks = JobBuilder.createTasks(new String[] { "t1" });
+        JobBuilder.configureTasks(tasks, new String[] { ".pa.result.compression <- \"none\"\nresult <- 1" },
+                "parscript", new SelectionScript[0], new String[0], new String[0], false, -1, new int[0],
+                new Task[0]);
+
+        JobBuilder.setScriptVariable(tasks, ".pa.result.compression", "gzip");
+
+        assertEquals(".pa.result.compression <- \"gzip\"\nresult <- 1", tasks[0].getScript().getScript());
+        assertEquals("parscript", tasks[0].getScript().getEngineName());
+    }
+
+    @Test
+    public void codeIsPrependedToTheScripts() throws Exception {
+        ScriptTask[] tasks = JobBuilder.createTasks(new String[] { "t1" });
+        JobBuilder.configureTasks(tasks, new String[] { "result <- 1" }, "parscript", new SelectionScript[0],
+                new String[0], new String[0], false, -1, new int[0], new Task[0]);
+
+        JobBuilder.prependScript(tasks, "x <- 2\n");
+
+        assertEquals("x <- 2\nresult <- 1", tasks[0].getScript().getScript());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownSpacesAreRejected() throws Exception {
+        JobBuilder.outputAccessMode("INPUT");
+    }
+}
@@ -0,0 +1,123 @@
+package org.ow2.parconnector.local;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.ow2.proactive.scheduler.common.job.JobId;
+import org.ow2.proactive.scheduler.common.job.JobState;
+import org.ow2.proactive.scheduler.common.job.JobStatus;
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.task.ScriptTask;
+import org.ow2.proactive.scheduler.common.task.TaskResult;
+import org.ow2.proactive.scheduler.common.task.TaskStatus;
+import org.ow2.proactive.scheduler.rest.ISchedulerClient;
+import org.ow2.proactive.scripting.TaskScript;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class LocalSchedulerTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void filesArePushedToAndPulledFromTheSpaces() throws Exception {
+        LocalScheduler scheduler = new LocalScheduler("Rscript", 1, folder.newFolder("root").getPath());
+        ISchedulerClient client = scheduler.client();
+        assertSame(scheduler, LocalScheduler.of(client));
+        assertNull(LocalScheduler.of("not a client"));
+
+        File local = folder.newFile("data.txt");
+        Files.write(local.toPath(), "data".getBytes(UTF8));
+        assertTrue(client.pushFile("USERSPACE", "/dir", "data.txt", local.getPath()));
+
+        File pulled = new File(folder.getRoot(), "pulled.txt");
+        assertTrue(client.pullFile("USERSPACE", "/dir/data.txt", pulled.getPath()));
+        assertEquals("data", new String(Files.readAllBytes(pulled.toPath()), UTF8));
+        assertFalse(new File(folder.getRoot(), "root/global/dir/data.txt").exists());
+    }
+
+    @Test
+    public void matchingFilesAreCopiedAtTheSameRelativePath() throws Exception {
+        File from = folder.newFolder("from");
+        File to = folder.newFolder("to");
+        new File(from, "hash").mkdir();
+        Files.write(new File(from, "hash/a.rdata").toPath(), new byte[1]);
+        Files.write(new File(from, "hash/b.txt").toPath(), new byte[1]);
+
+        LocalScheduler.copyMatching(from, to, "hash/*.rdata");
+        LocalScheduler.copyMatching(from, to, "/hash/b.txt");
+        LocalScheduler.copyMatching(from, to, "missing.txt");
+
+        assertTrue(new File(to, "hash/a.rdata").isFile());
+        assertTrue(new File(to, "hash/b.txt").isFile());
+        assertEquals(2, new File(to, "hash").list().length);
+    }
+
+    @Test
+    public void tasksDependingOnAFailedTaskAreAborted() throws Exception {
+        // the R processes cannot be started, the tasks fail
+        LocalScheduler scheduler = new LocalScheduler(new File(folder.getRoot(), "missing").getPath(), 2,
+                folder.newFolder("root").getPath());
+        ISchedulerClient client = scheduler.client();
+
+        ScriptTask t1 = task("t1");
+        ScriptTask t2 = task("t2");
+        t2.addDependence(t1);
+        TaskFlowJob job = new TaskFlowJob();
+        job.setName("job");
+        job.addTask(t1);
+        job.addTask(t2);
+
+        JobId id = scheduler.submit(job);
+        List<Map.Entry<String, TaskResult>> results = scheduler.waitForAllTasks(id.value(), Arrays.asList(
+                "t1", "t2"), 60000);
+
+        assertEquals("t1", results.get(0).getKey());
+        assertTrue(results.get(0).getValue().hadException());
+        assertTrue(results.get(1).getValue().getException().getMessage().contains("t1"));
+        assertArrayEquals(new String[] { "Faulty", "Aborted" }, scheduler.getTaskStatuses(id.value(),
+                new String[] { "t1", "t2" }));
+        assertEquals("Finished", scheduler.getJobStatus(id.value()));
+        assertFalse(scheduler.isJobAlive(id.value()));
+
+        JobState state = client.getJobState(id.value());
+        assertEquals("job", state.getName());
+        assertEquals(JobStatus.FINISHED, state.getJobInfo().getStatus());
+        assertEquals(2, state.getJobInfo().getNumberOfFinishedTasks());
+        assertEquals(TaskStatus.FAULTY, state.getTasks().get(0).getStatus());
+        assertEquals(TaskStatus.ABORTED, state.getTasks().get(1).getStatus());
+        assertTrue(state.getTasks().get(0).getFinishedTime() >= state.getTasks().get(0).getStartTime());
+        assertEquals(0, state.getTasks().get(1).getStartTime());
+        assertEquals("t2", state.getTasks().get(1).getId().getReadableName());
+        assertEquals("", client.getTaskServerLogs(id.value(), "t1"));
+        scheduler.shutdown();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void otherMethodsAreNotSupported() throws Exception {
+        new LocalScheduler("Rscript", 1, folder.newFolder("root").getPath()).client().listenJobLogs("1", null);
+    }
+
+    private static ScriptTask task(String name) {
+        ScriptTask task = new ScriptTask();
+        task.setName(name);
+        task.setScript(new TaskScript("result <- 1", "parscript"));
+        return task;
+    }
+}
@@ -0,0 +1,59 @@
+package org.ow2.parconnector.log;
+
+import org.ow2.parconnector.StubSchedulerClient;
+import org.ow2.proactive.scheduler.rest.ISchedulerClient;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class TaskLogTailTest {
+
+    @Test
+    public void onlyTheNewLinesAreRead() throws Exception {
+        TaskLogTail tail = new TaskLogTail(null, "1", new String[] { "t1", "t2" });
+
+        tail.append("t1", "line1\n");
+        assertArrayEquals(new String[] { "line1\n", "" }, tail.read(100));
+
+        tail.append("t1", "line2\n");
+        tail.append("t2", "abcdef");
+        // at most 4 characters per read, the rest comes with the next read
+        assertArrayEquals(new String[] { "line", "abcd" }, tail.read(4));
+        assertArrayEquals(new String[] { "2\n", "ef" }, tail.read(4));
+        assertArrayEquals(new String[] { "", "" }, tail.read(4));
+        assertEquals(12, tail.getOffsets()[0]);
+
+        TaskLogTail.Part part = tail.readFrom("t1", 6, 100);
+        assertEquals("line2\n", part.getText());
+        assertEquals(12, part.getNextOffset());
+    }
+
+    @Test
+    public void unknownOffsetsAndTasksAreReadFromTheStart() throws Exception {
+        TaskLogTail tail = new TaskLogTail(null, "1", new String[] { "t1" });
+        tail.append("t1", "new");
+        tail.append("t3", "ignored");
+
+        TaskLogTail.Part part = tail.readFrom("t1", 10, 100);
+        assertEquals("new", part.getText());
+        assertEquals(3, part.getNextOffset());
+        assertEquals("", tail.readFrom("t3", 0, 100).getText());
+    }
+
+    @Test
+    public void listenAgainOnceClosed() throws Exception {
+        ISchedulerClient client = StubSchedulerClient.create();
+        TaskLogTail tail = new TaskLogTail(client, "1", new String[] { "t1" });
+        tail.listen();
+        tail.listen();
+        assertEquals("The logs of the job must be listened once", 1, StubSchedulerClient.getCalls(client));
+
+        tail.close();
+        tail.listen();
+        assertEquals(2, StubSchedulerClient.getCalls(client));
+        tail.close();
+        tail.close();
+    }
+}
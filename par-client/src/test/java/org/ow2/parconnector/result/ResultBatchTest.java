@@ -0,0 +1,122 @@
+package org.ow2.parconnector.result;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.ow2.proactive.scheduler.common.task.TaskLogs;
+import org.ow2.proactive.scheduler.common.task.TaskResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class ResultBatchTest {
+
+    @Test
+    public void resultsAreFlattened() throws Exception {
+        Map<String, TaskResult> results = new HashMap<String, TaskResult>();
+        ResultBatch.putAll(results, Arrays.<Map.Entry<String, TaskResult>> asList(
+                new AbstractMap.SimpleEntry<String, TaskResult>("t1", result(new byte[] { 1, 2 }, false, "log1")),
+                new AbstractMap.SimpleEntry<String, TaskResult>("t3", result(new byte[] { 3 }, false, null)),
+                new AbstractMap.SimpleEntry<String, TaskResult>("t4", result(null, true, "failed")),
+                new AbstractMap.SimpleEntry<String, TaskResult>("t5", result("reference", false, null))));
+
+        String[] names = { "t1", "t2", "t3", "t4", "t5" };
+        assertEquals(Collections.singletonList("t2"), ResultBatch.missingTasks(results, names));
+        assertArrayEquals(new String[] { "t2" }, ResultBatch.missingTaskNames(results, names));
+
+        ResultBatch batch = new ResultBatch(results, names);
+        assertEquals(Arrays.toString(new boolean[] { true, false, true, true, true }),
+                Arrays.toString(batch.getAvailable()));
+        assertEquals(Arrays.toString(new boolean[] { false, false, false, true, false }),
+                Arrays.toString(batch.getExceptions()));
+        assertArrayEquals(new String[] { "log1", "", "", "failed", "" }, batch.getLogs());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, batch.getValues());
+        assertArrayEquals(new int[] { 2, -1, 1, -1, -1 }, batch.getLengths());
+        assertEquals(0, batch.getOffsets()[0]);
+        assertEquals(2, batch.getOffsets()[2]);
+        assertEquals("reference", batch.getValue(4));
+        assertEquals(0, ResultBatch.serializedValue(results.get("t5")).length);
+    }
+
+    @Test
+    public void largeResultsAreNotConcatenated() throws Exception {
+        System.setProperty(ResultBatch.INLINE_LIMIT_PROPERTY, "2");
+        try {
+            Map<String, TaskResult> results = new HashMap<String, TaskResult>();
+            results.put("t1", result(new byte[] { 1, 2, 3 }, false, null));
+            results.put("t2", result(new byte[] { 4 }, false, null));
+
+            ResultBatch batch = new ResultBatch(results, new String[] { "t1", "t2" });
+            assertEquals(Arrays.toString(new boolean[] { true, false }), Arrays.toString(batch.getLarge()));
+            assertArrayEquals(new int[] { -1, 1 }, batch.getLengths());
+            assertArrayEquals(new byte[] { 4 }, batch.getValues());
+            assertArrayEquals(new byte[] { 1, 2, 3 }, batch.getSerializedValue(0));
+        } finally {
+            System.clearProperty(ResultBatch.INLINE_LIMIT_PROPERTY);
+        }
+    }
+
+    @Test
+    public void resultsBeyondTheBatchLimitAreNotConcatenated() throws Exception {
+        System.setProperty(ResultBatch.BATCH_LIMIT_PROPERTY, "4");
+        try {
+            Map<String, TaskResult> results = new HashMap<String, TaskResult>();
+            results.put("t1", result(new byte[] { 1, 2, 3 }, false, null));
+            results.put("t2", result(new byte[] { 4, 5 }, false, null));
+            results.put("t3", result(new byte[] { 6 }, false, null));
+
+            ResultBatch batch = new ResultBatch(results, new String[] { "t1", "t2", "t3" });
+            assertEquals(Arrays.toString(new boolean[] { false, true, false }), Arrays.toString(batch.getLarge()));
+            assertArrayEquals(new int[] { 3, -1, 1 }, batch.getLengths());
+            assertArrayEquals(new byte[] { 1, 2, 3, 6 }, batch.getValues());
+            assertArrayEquals(new byte[] { 4, 5 }, batch.getSerializedValue(1));
+        } finally {
+            System.clearProperty(ResultBatch.BATCH_LIMIT_PROPERTY);
+        }
+    }
+
+    @Test
+    public void savedResultsAreNotMissing() throws Exception {
+        Map<String, TaskResult> results = new HashMap<String, TaskResult>();
+        results.put("t1", SavedTaskResult.of("t1", new byte[] { 5, 6 }));
+
+        assertEquals(Collections.singletonList("t2"), ResultBatch.missingTasks(results, new String[] { "t1", "t2" }));
+        ResultBatch batch = new ResultBatch(results, new String[] { "t1" });
+        assertEquals(Arrays.toString(new boolean[] { false }), Arrays.toString(batch.getExceptions()));
+        assertArrayEquals(new String[] { "" }, batch.getLogs());
+        assertArrayEquals(new byte[] { 5, 6 }, batch.getValues());
+    }
+
+    private static TaskResult result(final Serializable value, final boolean exception, final String log) {
+        final TaskLogs logs = (TaskLogs) Proxy.newProxyInstance(ResultBatchTest.class.getClassLoader(),
+                new Class<?>[] { TaskLogs.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        return log;
+                    }
+                });
+        return (TaskResult) Proxy.newProxyInstance(ResultBatchTest.class.getClassLoader(),
+                new Class<?>[] { TaskResult.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("hadException")) {
+                            return exception;
+                        } else if (method.getName().equals("getOutput")) {
+                            return logs;
+                        } else if (method.getName().equals("value")) {
+                            return value;
+                        }
+                        return null;
+                    }
+                });
+    }
+}
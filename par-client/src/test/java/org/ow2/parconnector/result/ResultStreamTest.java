@@ -0,0 +1,99 @@
+package org.ow2.parconnector.result;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.ow2.parconnector.transfer.FileTransferManager;
+import org.ow2.proactive.scheduler.common.task.TaskResult;
+import org.ow2.proactive.scheduler.rest.ISchedulerClient;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class ResultStreamTest {
+
+    @Test
+    public void resultsAreDeliveredAsTasksFinish() throws Exception {
+        final CountDownLatch t2Consumed = new CountDownLatch(1);
+        final Set<String> pulled = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        ISchedulerClient client = client(new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("pullFile")) {
+                    pulled.add((String) args[1]);
+                    return true;
+                }
+                List<?> pending = (List<?>) args[1];
+                if (pending.contains("t2")) {
+                    return entry("t2");
+                }
+                // t1 finishes only once the result of t2 has been consumed
+                assertTrue(t2Consumed.await(10, TimeUnit.SECONDS));
+                return entry("t1");
+            }
+        });
+        FileTransferManager transfers = new FileTransferManager(client, 2, 0, 0);
+        ResultStream stream = new ResultStream(client, transfers, "1", new String[] { "t1", "t2" });
+        stream.addOutputFile("t2", "USERSPACE", "/out2", "out2");
+
+        StreamedResult first = stream.nextResult(10000);
+        assertEquals("t2", first.getTaskName());
+        assertTrue("The output files must be pulled before the result is delivered", pulled.contains("/out2"));
+        t2Consumed.countDown();
+
+        assertEquals("t1", stream.nextResult(10000).getTaskName());
+        assertFalse(stream.hasNext());
+        assertNull(stream.nextResult(10000));
+        transfers.shutdown();
+    }
+
+    @Test
+    public void failuresAreReported() throws Exception {
+        ISchedulerClient client = client(new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                throw new IllegalStateException("Not connected");
+            }
+        });
+        ResultStream stream = new ResultStream(client, null, "1", new String[] { "t1" });
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                stream.nextResult(10000);
+                fail("The failure must be reported");
+            } catch (IllegalStateException e) {
+                assertEquals("Not connected", e.getMessage());
+            }
+        }
+        assertTrue(stream.hasNext());
+    }
+
+    private static AbstractMap.SimpleEntry<String, TaskResult> entry(String taskName) {
+        TaskResult result = (TaskResult) Proxy.newProxyInstance(ResultStreamTest.class.getClassLoader(),
+                new Class<?>[] { TaskResult.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        return method.getReturnType() == boolean.class ? false : null;
+                    }
+                });
+        return new AbstractMap.SimpleEntry<String, TaskResult>(taskName, result);
+    }
+
+    private static ISchedulerClient client(InvocationHandler handler) {
+        return (ISchedulerClient) Proxy.newProxyInstance(ResultStreamTest.class.getClassLoader(),
+                new Class<?>[] { ISchedulerClient.class }, handler);
+    }
+}
@@ -0,0 +1,97 @@
+package org.ow2.parconnector.speculation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.ow2.proactive.scheduler.common.job.JobInfo;
+import org.ow2.proactive.scheduler.common.job.JobState;
+import org.ow2.proactive.scheduler.common.task.TaskState;
+import org.ow2.proactive.scheduler.common.task.TaskStatus;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class StragglerDetectorTest {
+
+    @Test
+    public void slowTasksAreReportedOnceMostTasksFinished() throws Exception {
+        StragglerDetector detector = new StragglerDetector(0.5, 2) {
+            @Override
+            protected long currentTime() {
+                return 1000;
+            }
+        };
+        String[] names = { "t1", "t2", "t3", "t4", "t5" };
+
+        // 2 of 5 tasks finished, too early to speculate
+        JobState state = state(task("t1", TaskStatus.FINISHED, 0, 100), task("t2", TaskStatus.FINISHED, 0, 100),
+                task("t3", TaskStatus.RUNNING, 0, 0), task("t4", TaskStatus.RUNNING, 0, 0),
+                task("t5", TaskStatus.RUNNING, 900, 0));
+        assertEquals(0, detector.stragglers(state, names).length);
+
+        // 3 of 5 tasks finished, the median duration is 100, t4 runs for 999 and t5 for 100
+        state = state(task("t1", TaskStatus.FINISHED, 0, 100), task("t2", TaskStatus.FINISHED, 0, 100),
+                task("t3", TaskStatus.FINISHED, 0, 120), task("t4", TaskStatus.RUNNING, 1, 0),
+                task("t5", TaskStatus.RUNNING, 900, 0));
+        assertArrayEquals(new String[] { "t4" }, detector.stragglers(state, names));
+        assertEquals(0, detector.stragglers(state, names).length);
+
+        assertEquals("host-t4", StragglerDetector.executionHost(state, "t4"));
+        assertEquals(Arrays.asList("t1", "t2", "t3"), sorted(StragglerDetector.finishedTasks(state, names)));
+    }
+
+    @Test
+    public void medianOfEvenNumberOfValues() {
+        assertEquals(2.5, StragglerDetector.median(new long[] { 4, 1, 3, 2 }), 0);
+    }
+
+    private static java.util.List<String> sorted(String[] names) {
+        Arrays.sort(names);
+        return Arrays.asList(names);
+    }
+
+    private static JobState state(final TaskState... tasks) {
+        return new JobState() {
+            @Override
+            public JobInfo getJobInfo() {
+                return null;
+            }
+
+            @Override
+            public ArrayList<TaskState> getTasks() {
+                return new ArrayList<TaskState>(Arrays.asList(tasks));
+            }
+        };
+    }
+
+    private static TaskState task(final String name, final TaskStatus status, final long start, final long finish) {
+        return new TaskState() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public TaskStatus getStatus() {
+                return status;
+            }
+
+            @Override
+            public long getStartTime() {
+                return start;
+            }
+
+            @Override
+            public long getFinishedTime() {
+                return finish;
+            }
+
+            @Override
+            public String getExecutionHostName() {
+                return "host-" + name;
+            }
+        };
+    }
+}
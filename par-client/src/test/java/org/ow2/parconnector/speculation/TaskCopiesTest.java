@@ -0,0 +1,45 @@
+package org.ow2.parconnector.speculation;
+
+import java.util.Collections;
+
+import org.ow2.parconnector.job.JobBuilder;
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.task.ScriptTask;
+import org.ow2.proactive.scheduler.common.task.Task;
+import org.ow2.proactive.scripting.SelectionScript;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class TaskCopiesTest {
+
+    @Test
+    public void theOriginalTaskIsNotModified() throws Exception {
+        ScriptTask[] tasks = JobBuilder.createTasks(new String[] { "t1" });
+        SelectionScript original = new SelectionScript("selected = true", "js", false);
+        JobBuilder.configureTasks(tasks, new String[] { "result <- 1" }, "parscript",
+                new SelectionScript[] { original }, new String[] { "INFO" }, new String[] { "true" }, true, 1000,
+                new int[0], new Task[0]);
+        JobBuilder.addTasks(new TaskFlowJob(), tasks, new int[] { 0, 0 }, new String[] { "in", "out" },
+                new String[] { "USER", "USER" }, new boolean[] { true, false });
+
+        SelectionScript otherHost = new SelectionScript("selected = false", "js", false);
+        ScriptTask copy = TaskCopies.copy(tasks[0], new SelectionScript[] { otherHost });
+
+        assertNotSame(tasks[0], copy);
+        assertEquals("t1", copy.getName());
+        assertEquals("result <- 1", copy.getScript().getScript());
+        assertEquals("parscript", copy.getScript().getEngineName());
+        assertEquals(1, copy.getInputFilesList().size());
+        assertEquals(1, copy.getOutputFilesList().size());
+        assertEquals(2, copy.getSelectionScripts().size());
+        assertEquals(Collections.singletonMap("INFO", "true"), copy.getGenericInformation());
+        assertTrue(copy.isRunAsMe());
+        assertEquals(1000, copy.getWallTime());
+
+        assertEquals(Collections.singletonList(original), tasks[0].getSelectionScripts());
+    }
+}
@@ -0,0 +1,100 @@
+package org.ow2.parconnector.state;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.ow2.proactive.scheduler.common.job.JobState;
+import org.ow2.proactive.scheduler.rest.ISchedulerClient;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class JobStateCacheTest {
+
+    private String signature;
+
+    private boolean alive;
+
+    private long time;
+
+    private JobStateCache cache;
+
+    @Before
+    public void createCache() {
+        signature = "RUNNING";
+        alive = true;
+        time = 0;
+        // the scheduler returns null states, the job progress is given by the fields of the test
+        ISchedulerClient client = (ISchedulerClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ISchedulerClient.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        return null;
+                    }
+                });
+        cache = new JobStateCache(client, 1000, 4000) {
+            @Override
+            protected long currentTime() {
+                return time;
+            }
+
+            @Override
+            protected String signature(JobState state) {
+                return signature;
+            }
+
+            @Override
+            protected boolean isAlive(JobState state) {
+                return alive;
+            }
+        };
+    }
+
+    @Test
+    public void statesAreCachedDuringTheDelay() throws Exception {
+        cache.getJobState("1");
+        time = 999;
+        cache.getJobState("1");
+        assertEquals(1, cache.getRequests());
+
+        time = 1000;
+        cache.getJobState("1");
+        assertEquals(2, cache.getRequests());
+    }
+
+    @Test
+    public void delayGrowsWhileTheJobIsUnchanged() throws Exception {
+        cache.getJobState("1");
+        time = 1000;
+        // unchanged, the next delay is 2000
+        cache.getJobState("1");
+        time = 2999;
+        cache.getJobState("1");
+        assertEquals(2, cache.getRequests());
+
+        time = 3000;
+        signature = "FINISHED_TASKS_1";
+        cache.getJobState("1");
+        assertEquals(3, cache.getRequests());
+
+        // changed, the delay is reset
+        time = 4000;
+        cache.getJobState("1");
+        assertEquals(4, cache.getRequests());
+    }
+
+    @Test
+    public void finishedJobsAreNotFetchedAgain() throws Exception {
+        alive = false;
+        cache.getJobState("1");
+        time = 1000000;
+        cache.getJobState("1");
+        assertEquals(1, cache.getRequests());
+
+        cache.refresh("1");
+        assertEquals(2, cache.getRequests());
+    }
+}
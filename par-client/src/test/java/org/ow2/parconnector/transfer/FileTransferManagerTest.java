@@ -0,0 +1,93 @@
+package org.ow2.parconnector.transfer;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ow2.proactive.scheduler.rest.ISchedulerClient;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class FileTransferManagerTest {
+
+    @Test
+    public void transfersRunConcurrently() throws Exception {
+        final CountDownLatch allStarted = new CountDownLatch(4);
+        ISchedulerClient client = client(new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                allStarted.countDown();
+                // blocks unless the four transfers run at the same time
+                return allStarted.await(10, TimeUnit.SECONDS);
+            }
+        });
+        FileTransferManager manager = new FileTransferManager(client, 4, 0, 0);
+
+        FileTransfer[] transfers = manager.pullAll("USERSPACE", new String[] { "/a", "/b", "/c", "/d" },
+                new String[] { "a", "b", "c", "d" });
+        boolean[] results = FileTransferManager.await(transfers);
+
+        assertTrue(Arrays.equals(new boolean[] { true, true, true, true }, results));
+        assertEquals(4, FileTransferManager.countDone(transfers));
+        assertTrue(transfers[0].isSuccessful());
+        assertEquals(4, manager.getCompleted());
+        manager.shutdown();
+    }
+
+    @Test
+    public void failedTransfersAreRetried() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        ISchedulerClient client = client(new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (calls.incrementAndGet() < 3) {
+                    throw new IOException("Connection reset");
+                }
+                return true;
+            }
+        });
+        FileTransferManager manager = new FileTransferManager(client, 1, 2, 1);
+
+        assertTrue(manager.push("USERSPACE", "/", "in.txt", "in.txt").get());
+        assertEquals(3, calls.get());
+        manager.shutdown();
+    }
+
+    @Test
+    public void failureIsReportedAfterTheLastRetry() throws Exception {
+        ISchedulerClient client = client(new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                throw new IOException("Connection refused");
+            }
+        });
+        FileTransferManager manager = new FileTransferManager(client, 2, 1, 1);
+
+        FileTransfer[] transfers = manager.pushAll("USERSPACE", new String[] { "/", "/" },
+                new String[] { "a", "b" }, new String[] { "a", "b" });
+        try {
+            FileTransferManager.await(transfers);
+            fail("The transfer failure must be reported");
+        } catch (FileTransferException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertEquals(1, e.getSuppressed().length);
+        }
+        assertFalse(transfers[0].isSuccessful());
+        manager.shutdown();
+    }
+
+    private static ISchedulerClient client(InvocationHandler handler) {
+        return (ISchedulerClient) Proxy.newProxyInstance(FileTransferManagerTest.class.getClassLoader(),
+                new Class<?>[] { ISchedulerClient.class }, handler);
+    }
+}
@@ -196,7 +196,8 @@ error = function(e) {print(str_c("Error when replacing pattern ", pattern, " in
             # local file with implicit user space transfer, behaviour varies if it's an input or output file
             pafile <- PAFile(path, hash = ifelse(isolate.io.files,hash,""), working.dir = dir, space = "USER")            
             if (!isOutput) {
-              pushFile(pafile, client = client)
+              # the task reads the file from the content store, where each content is uploaded once
+              pafile <- .storeInputFile(pafile, client = client)
             }
           },
           LOCALUSER={
@@ -243,6 +244,84 @@ error = function(e) {print(str_c("Error when replacing pattern ", pattern, " in
   return (pafile)
 }
 
+# files of the content store, the dependencies saved by PA() are specific to the tasks loading them
+.isContentStoreFile <- function(pafile) {
+  return(str_replace_all(pafile@pathdest, "^/+|/+$", "") == .content.store.dir)
+}
+
+# the values captured by a closure : the variables it uses which are found in its environment or in the enclosing environments,
+# up to the global environment, the global variables it uses are in the saved dependencies
+.capturedValues <- function(fun) {
+  values <- list()
+  for (name in sort(findGlobals(fun))) {
+    envir <- environment(fun)
+    while (!is.null(envir) && !identical(envir, globalenv()) && !identical(envir, emptyenv()) && !isNamespace(envir)) {
+      if (exists(name, envir = envir, inherits = FALSE)) {
+        values[name] <- list(get(name, envir = envir, inherits = FALSE))
+        break
+      }
+      envir <- parent.env(envir)
+    }
+  }
+  return(values)
+}
+
+# the part of the memoization key identifying a function, its code and the values it captured
+.functionMemoKey <- function(fun, funname = NULL, depVariableNames = NULL) {
+  if (is.element(funname, depVariableNames)) {
+    # the function is saved with the dependencies
+    fun.text <- funname
+  } else {
+    fun.text <- deparse(fun)
+  }
+  return(list(fun.text, .objectDigest(.capturedValues(fun))))
+}
+
+# digest identifying the computation of a task : its function, saved dependencies, arguments, input files and the tasks it depends on
+# an empty key is returned if the task depends on a task which is not memoized
+.taskMemoKey <- function(fun.key, deps.file, libraryDependencies, params, input.files, in.dir) {
+  for (j in seq_along(params)) {
+    if (class(params[[j]]) == "PATask") {
+      if (params[[j]]@memo.key == "") {
+        return("")
+      }
+      params[j] <- list(c(params[[j]]@memo.key, params[[j]]@scatter.index))
+    } else if (is.function(params[[j]])) {
+      params[j] <- list(.functionMemoKey(params[[j]]))
+    }
+  }
+  inputs <- lapply(input.files, function(f) {
+    path <- file.path(in.dir, f)
+    if (file.exists(path)) {
+      return(.fileDigest(path))
+    }
+    return(f)
+  })
+  return(.objectDigest(list(fun.key, params, deps.file, libraryDependencies, inputs)))
+}
+
+# the tasks returned for the elements of a chunk, without chunks the task itself,
+# otherwise one task per element which selects its part of the result as a split task
+.chunkTasks <- function(t, chunk, chunk.size, repl.envir) {
+  if (chunk.size == 1) {
+    return(list(t))
+  }
+  t@chunk.length <- length(chunk)
+  .replacement.list <- get(".replacement.list", repl.envir)
+  return(lapply(seq_along(chunk), function(k) {
+    if (length(.replacement.list) < chunk[k]) {
+      return(PACloneTaskWithIndex(t, k, chunk[k]))
+    }
+    return(PACloneTaskWithIndex(t, k, chunk[k], .createReplacementFunction(repl.envir)))
+  }))
+}
+
+# chunk size giving a few tasks per node, so that the nodes stay busy while the scheduling overhead is amortized
+.autoChunkSize <- function(nbelements) {
+  nodes <- getOption("PARConnector.nodes", 8)
+  return(max(1, ceiling(nbelements / (4 * nodes))))
+}
+
 .findCardinality <- function(dots, varies) {
   maxlength <- 1
   for (i in 1:length(dots)) {   
@@ -376,17 +455,20 @@ PAM <- function(funcOrFuncName, ..., varies=list(), input.files=list(), output.f
   mergeTask <- singleTaskList[[1]]
 
   # For each task in mutlipleTasksList add all input/output files to the merge task
+  stored.inputs <- list()
   for (task in multipleTasksList) {
     nbFiles <- length(task@inputfiles)
-    # Skip the first .rdata file and get only the user defined inputfiles
+    # Skip the first .rdata file and the saved dependencies, get only the user defined inputfiles
     if (nbFiles > 1) {
       for (file in task@inputfiles[2:nbFiles]) { # file is a PAFile object
-          if (!is.null(file)) {
+          if (!is.null(file) && (!.isContentStoreFile(file) || file@target != "")) {
             addInputFiles(mergeTask) <- file
+            if (file@target != "") {
+              stored.inputs[[length(stored.inputs) + 1]] <- file
+            }
           }
       }
     }
-    # Add all output files
     for (file in task@outputfiles) { # file is a PAFile object
         if (!is.null(file)) {
           addOutputFiles(mergeTask) <- file
@@ -394,10 +476,68 @@ PAM <- function(funcOrFuncName, ..., varies=list(), input.files=list(), output.f
     }
   }
 
+  # the merge task copies the input files read from the content store like the tasks it merges
+  if (length(stored.inputs) > 0) {
+    J("org.ow2.parconnector.job.JobBuilder")$prependScript(.jarray(list(getJavaObject(mergeTask)), contents.class = "org/ow2/proactive/scheduler/common/task/Task"), .storedInputsScript(stored.inputs))
+  }
   singleTaskList[[1]] <- mergeTask
   return(singleTaskList)
 }
 
+#' Creates a tree of merge PATasks which reduces the results of a list of PATasks in parallel
+#' 
+#' \code{PAMTree} aggregates the results of a list of tasks produced by \code{\link{PA}} like \code{\link{PAM}}, but instead of a single task merging all the results, 
+#' it builds a balanced tree of partial merge tasks : the results are merged by groups of at most \code{fan.in} tasks, the results of these merges are merged again by groups, until a single task remains.
+#' 
+#' The partial merges run in parallel and the depth of the tree is logarithmic in the number of tasks, no task has to hold all the results in memory. 
+#' The merge function must be associative and accept a variable number of parameters (e.g. sum, max, c or rbind). The order of the results is kept, the function does not need to be commutative.
+#' 
+#'  @param funcOrFuncName function handle or function name of the merge function
+#'  @param tasks list of PATasks whose results are merged
+#'  @param ... other arguments of the merge function, given to every partial merge
+#'  @param fan.in maximum number of results merged by each task, at least 2. Default to 8.
+#'  @param input.files a list of input files which will be transferred to the final merge task, see Details section in  \code{\link{PA}} for more information
+#'  @param output.files a list of output files which will be transferred from the final merge task to the local machine
+#'  @param in.dir in case input files are used, the directory which will be used as base (default to current working directory)
+#'  @param out.dir in.dir in case ouput files are used, the directory which will be used as base (default to current working directory)
+#'  @param hostname.selection can be used to restrict the remote execution to a given machine, wildcards can be used
+#'  @param ip.selection can be used to restrict the remote execution to a given machine given its IP address
+#'  @param property.selection.name can be used to restrict the remote execution to a given JVM resource where the property is set to the according value
+#'  @param property.selection.value is used in combination with property.selection.name
+#'  @param generic.information.list a list containing generic informations to be added to the ProActive Tasks (example list(INFO1 = "true"), adds the generic info INFO1 = "true" to the tasks)
+#'  @param run.as.me a boolean value which, if set to TRUE, make the ProActive Tasks run under this user account (impersonation), and not under the account of the ProActive Scheduler
+#'  @param walltime the maximum time expected for each merge task in miliseconds. Default to -1 (walltime disabled)
+#'  @param client connection handle to the scheduler, if not provided the handle created by the last call to PAConnect will be used
+#'  @param .debug debug mode
+#'  @return a list containing the final merge PATask, which can be submitted via a \code{\link{PASolve}} call or given as parameter to other \code{\link{PA}}, \code{\link{PAS}} or \code{\link{PAM}} functions
+#'  
+#'  @examples 
+#'  \dontrun{
+#'  PAMTree("sum", PA(function(x) {x*x}, 1:1000), fan.in = 10) # 1000 tasks merged by 100 tasks, merged by 10 tasks, merged by a final task
+#'  }
+#'  @seealso  \code{\link{PAM}} \code{\link{PA}} \code{\link{PASolve}}
+#' @export
+PAMTree <- function(funcOrFuncName, tasks, ..., fan.in = 8, input.files=list(), output.files=list(), in.dir = getwd(), out.dir = getwd(), hostname.selection = NULL, ip.selection = NULL, property.selection.name = NULL, property.selection.value = NULL, generic.information.list = NULL, run.as.me = FALSE, walltime = -1, isolate.io.files = FALSE, client = PAClient(), .debug = PADebug()) {
+  fan.in <- as.integer(fan.in)
+  if (is.na(fan.in) || fan.in < 2) {
+    stop("fan.in must be at least 2")
+  }
+  if (class(tasks) == "PATask") {
+    tasks <- list(tasks)
+  }
+  merge <- function(group, input.files = list(), output.files = list()) {
+    return(PAM(funcOrFuncName, group, ..., input.files = input.files, output.files = output.files, in.dir = in.dir, out.dir = out.dir, hostname.selection = hostname.selection, ip.selection = ip.selection, property.selection.name = property.selection.name, property.selection.value = property.selection.value, generic.information.list = generic.information.list, run.as.me = run.as.me, walltime = walltime, isolate.io.files = isolate.io.files, client = client, .debug = .debug))
+  }
+  
+  # each level merges contiguous groups of balanced sizes, so that the order of the results is kept
+  while (length(tasks) > fan.in) {
+    n <- length(tasks)
+    groups <- split(tasks, floor((seq_len(n) - 1) * ceiling(n / fan.in) / n))
+    tasks <- lapply(unname(groups), function(group) merge(group)[[1]])
+  }
+  return(merge(tasks, input.files = input.files, output.files = output.files))
+}
+
 #' Creates a single split PATask which can be used in combination with \code{\link{PA}} and \code{\link{PAM}} to create split/merge workflows
 #' 
 #' \code{PAS} uses the same parameter semantic as \code{\link{PA}} , but instead of creating a set of parallel tasks, it will produce a single task whose result (expected to be a list of vector) will be scattered across dependent tasks. 
@@ -469,9 +609,12 @@ PAS <- function(funcOrFuncName, ..., varies=NULL, input.files=list(), output.fil
 #' 
 #' The function can be provided via its name or via a closure object. For builtin functions, it is necessary to provide the name instead of the closure.
 #' For user defined function, the function will be analysed and all its depdendencies will be automatically transferred to the remote executions. Dependencies can include other functions or variables defined in the function closure.
+#' The analysis is cached, later calls with the same function reuse it as long as the function and the objects it refers to are unchanged. The cache can be disabled with the option \code{PARConnector.dependency.cache}.
 #' If the function has a dependency on a package, it's mandatory to manually install and load the package in the remote R executions. PARConnector does not handle automatic package installation.
 #' It's of course possible though to do the installation and loading of a package from within the function provided to \code{PA}
 #' 
+#' Large objects given as arguments are copied in the environment file of each task, they can instead be passed by reference with a \code{\link{PAData}} handle.
+#' 
 #' The cardinality (the number of PATask to be created) will be determined by analysing the parameters. If the parameters contains lists or vectors, the biggest length will be the cardinality. 
 #' Only parameters of the following types logical, integer, character, double, complex, raw, and list will be considered.
 #' 
@@ -561,6 +704,9 @@ PAS <- function(funcOrFuncName, ..., varies=NULL, input.files=list(), output.fil
 #'  @param isolate.io.files should input/output files be isolated in the remote executions, default FALSE.
 #'      If set to TRUE, when input and output files are copied to USER/GLOBAL space or to the NODE execution, they will be isolated in a folder specific to the current job. 
 #'      It thus guaranties that they will be separated from other jobs execution. On the other hand it will not be possible to reuse the remote files directly in other jobs.
+#'  @param chunk.size number of parameter sets evaluated by each ProActive Task, default 1. With fine-grained functions, a bigger chunk size reduces the scheduling overhead :
+#'      each task evaluates a contiguous block of parameter sets in a loop, but one PATask is still returned per parameter set and \code{\link{PAWaitFor}} gives one result per parameter set.
+#'      If set to "auto", the chunk size is computed to create about 4 tasks per node, the number of nodes being given by the option \code{PARConnector.nodes} (8 by default).
 #'  @param client connection handle to the scheduler, if not provided the handle created by the last call to PAConnect will be used
 #'  @param .debug debug mode
 #'  @return a list of PATask objects which can be submitted to the ProActive Scheduler via a \code{\link{PASolve}} call or given as parameter to other \code{\link{PA}}, \code{\link{PAS}} or \code{\link{PAM}} functions
@@ -586,7 +732,7 @@ PAS <- function(funcOrFuncName, ..., varies=NULL, input.files=list(), output.fil
 #'  }
 #'  @seealso  \code{\link{PAS}} \code{\link{PAM}}  \code{\link{PASolve}} \code{\link{mapply}} \code{\link{PAJobResult}} \code{\link{PAConnect}}
 #' @export
-PA <- function(funcOrFuncName, ..., varies=NULL, input.files=list(), output.files=list(), in.dir = getwd(), out.dir = getwd(), hostname.selection = NULL, ip.selection = NULL, property.selection.name = NULL, property.selection.value = NULL, generic.information.list = NULL, run.as.me = FALSE, walltime = -1, isolate.io.files = FALSE,  client = PAClient(), .debug = PADebug()) {
+PA <- function(funcOrFuncName, ..., varies=NULL, input.files=list(), output.files=list(), in.dir = getwd(), out.dir = getwd(), hostname.selection = NULL, ip.selection = NULL, property.selection.name = NULL, property.selection.value = NULL, generic.information.list = NULL, run.as.me = FALSE, walltime = -1, isolate.io.files = FALSE, chunk.size = 1, client = PAClient(), .debug = PADebug()) {
   if (is.character(funcOrFuncName)) {
     fun <- match.fun(funcOrFuncName)
     funname <- funcOrFuncName
@@ -736,47 +882,176 @@ PA <- function(funcOrFuncName, ..., varies=NULL, input.files=list(), output.file
     dir.create(hash.tmp.dir, recursive = TRUE)
   }
   
-  patasks <- list()
-  patasknames <- ""
-  for (i in 1:maxlength) {
-    tname <- .getNewTaskName()
+  # all the files of the tasks are pushed concurrently, they are awaited before returning the tasks
+  if (.beginTransferBatch()) {
+    on.exit(.endTransferBatch("Pushing files"), add = TRUE)
+  }
+  
+  # save the dependencies once, they are shared by all tasks
+  # the file is named after its content so that unchanged dependencies are not uploaded again by later calls
+  deps.file <- NULL
+  if (length(depVariableNames) > 0) {
+    tmp.deps.file <- tempfile(pattern = "pasolve_deps_", tmpdir = hash.tmp.dir, fileext = ".rdata")
+    save(list = depVariableNames, file = tmp.deps.file, envir = newenvir)
+    deps.file <- str_c("pasolve_deps_", .fileDigest(tmp.deps.file), ".rdata")
+    file.rename(tmp.deps.file, file.path(hash.tmp.dir, deps.file))
+    depsfile <- PAFile(deps.file, pathdest = .content.store.dir, space = "USER", working.dir = hash.tmp.dir)
+    pushFile(depsfile, client = client)
+  }
+  
+  # selection scripts are static and parameterized, the same instances are used by all tasks
+  selection.scripts <- list()
+  jselection <- J("org.ow2.parscript.selection.SelectionScripts")
+  if (!is.null(hostname.selection)) {
+    selection.scripts <- c(selection.scripts, jselection$checkHostName(toString(hostname.selection)))
+  }
+  if (!is.null(ip.selection)) {
+    selection.scripts <- c(selection.scripts, jselection$checkIP(toString(ip.selection)))
+  }
+  if (!is.null(property.selection.name)) {
+    selection.scripts <- c(selection.scripts, jselection$checkJavaProperty(toString(property.selection.name), toString(property.selection.value)))
+  }
+  
+  # tasks producing output files have side effects, they are not memoized
+  memoize <- PAMemoize() && length(output.files) == 0
+  if (memoize) {
+    fun.key <- .functionMemoKey(fun, funname, depVariableNames)
+  }
+  
+  # with chunks, a task evaluates a contiguous block of parameter sets and returns the list of their results
+  if (identical(chunk.size, "auto")) {
+    chunk.size <- .autoChunkSize(maxlength)
+  }
+  chunk.size <- max(1, as.integer(chunk.size))
+  chunks <- split(1:maxlength, ceiling((1:maxlength) / chunk.size))
+  
+  # the java tasks are created and configured with one call each, instead of several calls per task
+  JobBuilder <- J("org.ow2.parconnector.job.JobBuilder")
+  tnames <- vapply(chunks, function(chunk) .getNewTaskName(), "")
+  jtask.array <- JobBuilder$createTasks(.jarray(tnames))
+  jtasks <- .jevalArray(jtask.array)
+  scripts <- character(length(chunks))
+  dependency.tasks <- vector("list", length(chunks))
+  
+  # one task per parameter set, chunked or not
+  patasks <- vector("list", maxlength)
+  for (ck in seq_along(chunks)) {
+    chunk <- chunks[[ck]]
+    i <- chunk[1]
+    tname <- tnames[ck]
     .replacement.list <- get(".replacement.list",repl.envir)
     if (length(.replacement.list) < i) {
-      t <- PATask(tname, file.index = i) 
+      t <- PATask(tname, file.index = i, javaObject = jtasks[[ck]]) 
     } else {
-      t <- PATask(tname, file.index = i, file.index.function = .createReplacementFunction(repl.envir)) 
+      t <- PATask(tname, file.index = i, file.index.function = .createReplacementFunction(repl.envir), javaObject = jtasks[[ck]]) 
+    }
+    if (memoize) {
+      keys <- sapply(chunk, function(ii) .taskMemoKey(fun.key, deps.file, libraryDependencies, final.param.list[[ii]], final.input.files[[ii]], in.dir))
+      if (chunk.size == 1) {
+        t@memo.key <- keys
+      } else if (all(keys != "")) {
+        t@memo.key <- .objectDigest(list("chunk", keys))
+      }
+    }
+    # a task whose result is saved is not submitted, PASolve reads the result, without script nor files
+    if (.isMemoized(t)) {
+      patasks[chunk] <- .chunkTasks(t, chunk, chunk.size, repl.envir)
+      next
     }
-    patasknames <- c(patasknames,tname)
     env_file <- str_replace_all(file.path(hash.tmp.dir,str_c("pasolve_",tname,".rdata")),fixed("\\"), "/") 
     
-    # look for dependendent tasks in parameter list    
-    for (j in 1:length(final.param.list[[i]])) {
-      if (class(final.param.list[[i]][[j]]) == "PATask") {
-        # replace the parameter with the expression evaluated on the node only
-        deptsk <- final.param.list[[i]][[j]]
-        final.param.list[[i]][[j]] <- getQuoteExp(deptsk)
-        # set this task as dependant
-        addDependency(t) <- deptsk        
-      }       
+    # look for dependendent tasks and data handles in parameter list    
+    dependency.names <- NULL
+    uses.data <- FALSE
+    data.files <- list()
+    for (ii in chunk) {
+      for (j in seq_along(final.param.list[[ii]])) {
+        if (is(final.param.list[[ii]][[j]], "PAData")) {
+          data <- final.param.list[[ii]][[j]]
+          # the data is read from the content store by the node, once per R session
+          final.param.list[[ii]][[j]] <- .dataCall(data)
+          uses.data <- TRUE
+          if (!getOption("PARConnector.data.shared.space", FALSE) && !is.element(data@file, names(data.files))) {
+            # transferred with the inputs of the task for the nodes which cannot read the space directly
+            data.files[[data@file]] <- PAFile(data@file, pathdest = .content.store.dir, space = data@space)
+          }
+        } else if (class(final.param.list[[ii]][[j]]) == "PATask") {
+          deptsk <- final.param.list[[ii]][[j]]
+          if (.isMemoized(deptsk)) {
+            # the result of the task is saved, give it directly so that the task is not submitted
+            final.param.list[[ii]][j] <- list(.memoizedValue(deptsk))
+          } else {
+            # replace the parameter with the expression evaluated on the node only
+            final.param.list[[ii]][[j]] <- getQuoteExp(deptsk)
+            # set this task as dependant, once even if several elements of a chunk use it
+            # the java dependency is added by JobBuilder
+            if (!is.element(getName(deptsk), dependency.names)) {
+              dependency.names <- c(dependency.names, getName(deptsk))
+              t@dependencies <- c(t@dependencies, deptsk)
+              dependency.tasks[[ck]] <- c(dependency.tasks[[ck]], list(getJavaObject(deptsk)))
+            }
+          }
+        }       
+      }
     }
     
-    PASolveCall <- as.call(c(fun,final.param.list[[i]]))
+    calls <- lapply(chunk, function(ii) {
+      if (is.element(funname, depVariableNames)) {
+        # the function is saved with the dependencies, refer to it by name instead of copying it in each call
+        return(as.call(c(as.name(funname),final.param.list[[ii]])))
+      }
+      return(as.call(c(fun,final.param.list[[ii]])))
+    })
+    if (chunk.size == 1) {
+      PASolveCall <- calls[[1]]
+    } else {
+      PASolveCall <- as.call(c(as.name("list"), calls))
+    }
     
-    # save function call and all dependencies in a file
+    # save the function call in a file, small as it does not contain the dependencies
     assign("PASolveCall", PASolveCall, envir = newenvir)
-    save(list = c(depVariableNames,"PASolveCall"),file = env_file, envir = newenvir); 
+    save(list = "PASolveCall",file = env_file, envir = newenvir); 
             
     
     pasolvefile <- PAFile(basename(env_file),hash = hash,working.dir = file.path(str_replace_all(tempdir(),fixed("\\"), "/"),hash))
     pushFile(pasolvefile, client = client)      
     
     addInputFiles(t) <- pasolvefile 
+    if (!is.null(deps.file)) {
+      addInputFiles(t) <- depsfile
+    }
+    for (datafile in data.files) {
+      addInputFiles(t) <- datafile
+    }
+    if (length(input.files) > 0) {
+      tmp.input.files <- do.call(c, final.input.files[chunk])
+      for (j in 1:length(tmp.input.files)) {        
+        pafile <- .createAndTransferPAFileFromPattern(tmp.input.files[[j]], hash, in.dir, length(getDependencies(t)) > 0, FALSE, isolate.io.files)
+        
+        addInputFiles(t) <- pafile      
+      }
+    }      
      
+    # the compression and spill threshold lines are updated by PASolve
+    total_script <- str_c(.result.compression.var, " <- \"none\"\n")
+    total_script <- str_c(total_script, .result.spill.var, " <- \"0\"\n")
+    if (!is.null(dependency.names)) {
+      # the results of the parent tasks are read by PASolveCall only, declare them to the R engine
+      total_script <- str_c(total_script, "# <PARResults> ", paste(dependency.names, collapse = ","), "\n")
+    }
+    # the input files of the content store are copied first, at the paths where the function expects them
+    total_script <- str_c(total_script, .storedInputsScript(t@inputfiles))
+    total_script <- str_c(total_script, .inlineFunction(".compressResult"), .inlineFunction(".unserializeResult"))
+    if (uses.data) {
+      total_script <- str_c(total_script, .inlineFunction(".resolveData"))
+    }
+    if (!is.null(deps.file)) {
+      # the dependencies are at the same place in the localspace, isolated or not
+      total_script <- str_c(total_script, "load(\"", .content.store.dir, "/", deps.file, "\")\n")
+    }
     if (isolate.io.files) {
       # if input/output files are isolated the workdir will be set to the hash directory
-      total_script <- str_c("ifelse(file.exists(\"",hash,"\"),setwd(file.path(getwd(),\"",hash,"\")),NA)\n")
-    } else {
-      total_script <- ""
+      total_script <- str_c(total_script, "ifelse(file.exists(\"",hash,"\"),setwd(file.path(getwd(),\"",hash,"\")),NA)\n")
     }
     if (.debug) {
       total_script <- str_c(total_script, "print(paste(\"[DEBUG] Working directory is :\",getwd()))\n")
@@ -801,7 +1076,7 @@ PA <- function(funcOrFuncName, ..., varies=NULL, input.files=list(), output.file
       total_script <- str_c(total_script, "print(\"[DEBUG] PASolveCall :\")\n")
       total_script <- str_c(total_script, "print(PASolveCall)\n")
     }
-    total_script <- str_c(total_script, "result <- serialize(eval(PASolveCall), NULL)\n")
+    total_script <- str_c(total_script, "result <- .compressResult(serialize(eval(PASolveCall), NULL), ", .result.compression.var, ")\n")
     if (.debug) {
       total_script <- str_c(total_script, "print(\"[DEBUG] Result :\")\n")
       total_script <- str_c(total_script, "print(result)\n")
@@ -809,62 +1084,26 @@ PA <- function(funcOrFuncName, ..., varies=NULL, input.files=list(), output.file
       total_script <- str_c(total_script, "print(list.files(getwd()))\n")
     }
     total_script <- str_c(total_script, "set_progress(100)\n")
-    setScript(t,total_script) 
-    
-    
-    # add selection script if hostname.selection is provided
-    if (!is.null(hostname.selection)) {
-      sspath <- system.file("extdata", "checkHostName.js", package="PARConnector")
-      sscontents <- readChar(sspath, file.info(sspath)$size)
-      sscontents <- str_replace_all(sscontents, fixed("args[0]"), str_c("\"",toString(hostname.selection),"\""))
-      addSelectionScript(t,sscontents,"JavaScript",FALSE)
-    }
-    if (!is.null(ip.selection)) {
-      sspath <- system.file("extdata", "checkIP.js", package="PARConnector")
-      sscontents <- readChar(sspath, file.info(sspath)$size)
-      sscontents <- str_replace_all(sscontents, fixed("args[0]"), str_c("\"",toString(ip.selection),"\""))
-      addSelectionScript(t,sscontents,"JavaScript",FALSE)
-    }
-    if (!is.null(property.selection.name)) {
-      sspath <- system.file("extdata", "checkJavaProperty.js", package="PARConnector")
-      sscontents <- readChar(sspath, file.info(sspath)$size)
-      sscontents <- str_replace_all(sscontents, fixed("args[0]"), str_c("\"",toString(property.selection.name),"\""))
-      sscontents <- str_replace_all(sscontents, fixed("args[1]"), str_c("\"",toString(property.selection.value),"\""))
-      addSelectionScript(t,sscontents,"JavaScript",FALSE)
-    }
-
-    jtsk <- getJavaObject(t)
-    if (!is.null(generic.information.list)) {
-      for (j in names(generic.information.list)) {
-        jtsk$addGenericInformation(j, generic.information.list[[j]])
-      }
-    }
-
-    jtsk$setRunAsMe(run.as.me)
-    
-    if (walltime > -1) {
-      jtsk$setWallTime(.jlong(walltime))
-    }
-    
-    if (length(input.files) > 0) {
-      tmp.input.files <- final.input.files[[i]]
-      for (j in 1:length(tmp.input.files)) {        
-        pafile <- .createAndTransferPAFileFromPattern(tmp.input.files[[j]], hash, in.dir, length(getDependencies(t)) > 0, FALSE, isolate.io.files)
-        
-        addInputFiles(t) <- pafile      
-      }
-    }      
+    scripts[ck] <- total_script
     
     if (length(output.files) > 0) {
-      tmp.output.files <- final.output.files[[i]]
+      tmp.output.files <- do.call(c, final.output.files[chunk])
       for (j in 1:length(tmp.output.files)) {
         pafile <- .createAndTransferPAFileFromPattern(tmp.output.files[[j]], hash, out.dir, length(getDependencies(t)) > 0, TRUE, isolate.io.files)
         
         addOutputFiles(t) <- pafile
       }
     }
-    patasks <- c(patasks,t)
+    patasks[chunk] <- .chunkTasks(t, chunk, chunk.size, repl.envir)
   }
+  
+  # scripts, selection scripts, generic informations, run as me, walltime and dependencies of all the tasks
+  dependency.indexes <- rep(seq_along(chunks) - 1L, vapply(dependency.tasks, length, 0L))
+  JobBuilder$configureTasks(jtask.array, .jarray(scripts), "parscript",
+                            .jarray(selection.scripts, contents.class = "org/ow2/proactive/scripting/SelectionScript"),
+                            .jarray(as.character(names(generic.information.list))), .jarray(as.character(unlist(generic.information.list, use.names = FALSE))),
+                            run.as.me, .jlong(walltime), .jarray(as.integer(dependency.indexes)),
+                            .jarray(do.call(c, c(list(list()), dependency.tasks)), contents.class = "org/ow2/proactive/scheduler/common/task/Task"))
   return(patasks)
 }
 
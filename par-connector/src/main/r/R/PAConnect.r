@@ -52,7 +52,53 @@ PAConnect <- function(url, login, pwd,
   }, .print.stack = .print.stack)
      
   PAClient(client)
+  .resetTransferManager()
+  .resetJobStateCache()
+  # files pushed with a previous connection may not exist on this scheduler
+  .clearPushManifest()
                
   cat("Connected to Scheduler at ",url,"\n")
   return (client)
 }
+
+#' Runs the jobs on local R processes instead of a ProActive Scheduler
+#' 
+#' \code{PAConnectLocal} creates a connection handle which runs the jobs submitted by \code{\link{PASolve}} on a pool of R processes of this machine, without a scheduler nor network transfers.
+#' The tasks run with their dependencies, input and output files as on a scheduler, the USER and GLOBAL spaces being directories of \code{dir}. The same code runs locally or on a scheduler
+#' by replacing \code{PAConnectLocal} with \code{\link{PAConnect}}. Each R process runs one task at a time and keeps its global environment between tasks, as the R session of a ProActive node.
+#' Selection scripts and walltimes are ignored, and the functions reading the state of the scheduler, such as \code{\link{PAJobState}} or \code{\link{PAGetResult}}, are not available.
+#' 
+#'  @param nodes number of R processes running the tasks. Default to the number of cores. It also sets the option \code{PARConnector.nodes} used to compute automatic chunk sizes, see \code{\link{PA}}.
+#'  @param dir directory of the dataspaces and of the files of the tasks, a new temporary directory by default
+#'  @return a connection handle, which can be used in other PARConnector functions
+#'  @examples
+#'  \dontrun{
+#'  PAConnectLocal(4)   # runs the tasks on 4 local R processes
+#'  res <- PASolve("cos", 1:4)
+#'  PAWaitFor(res)
+#'  }
+#'  @seealso \code{\link{PAConnect}} \code{\link{PASolve}}
+#' @export
+PAConnectLocal <- function(nodes = max(1, parallel::detectCores(), na.rm = TRUE), dir = tempfile("parlocal")) {
+  
+  # the processes of a previous local connection are stopped
+  previous <- .localScheduler(PAClient())
+  if (!is.null(previous)) {
+    previous$shutdown()
+  }
+  
+  j_try_catch({
+    LocalScheduler <- J("org.ow2.parconnector.local.LocalScheduler")
+    scheduler <- .jnew(LocalScheduler, file.path(R.home("bin"), "Rscript"), as.integer(nodes), path.expand(dir))
+    client <- scheduler$client()
+  })
+  
+  PAClient(client)
+  .resetTransferManager()
+  .resetJobStateCache()
+  .clearPushManifest()
+  options(PARConnector.nodes = nodes)
+  
+  cat("Running the jobs on", nodes, "local R processes in", dir, "\n")
+  return (client)
+}
@@ -0,0 +1,112 @@
+setClass(
+  Class="PAData",
+  representation = representation(
+    file = "character", # name of the file in the content store, named after the digest of its content
+    space = "character" # remote data space name, USER or GLOBAL
+  ),
+  prototype=prototype(
+    file = "",
+    space = "USER"
+  )
+)
+
+#' Creates a handle passing a large R object by reference to the remote executions
+#'
+#' \code{PAData} uploads the object once to the USER or GLOBAL space, in a file named after the digest of its content, and returns a handle which can be given as argument to \code{\link{PA}}, \code{\link{PAS}} or \code{\link{PAM}}.
+#' Instead of embedding the object in the environment file of each task, the tasks receive the handle and the object is read from the data space on first use.
+#'
+#' The R session of each node keeps the objects it read in a cache, so that a node running many tasks on the same data reads it once.
+#' The size of this cache is bounded by the option \code{PARConnector.data.cache.size}, in bytes (4e9 by default), the least recently used objects are removed above this size.
+#'
+#' The file is transferred with the input files of each task using the handle, and read by the node only if the object is not already in its cache.
+#' When the data space is accessible from all the nodes as a local file system, the option \code{PARConnector.data.shared.space} can be set to TRUE so that the file is not transferred and the nodes read the space directly.
+#' Creating a handle for an object which was already uploaded during the session does not upload it again.
+#'
+#' @param object the R object to pass by reference
+#' @param space the data space where the object is uploaded, either "USER" (default) or "GLOBAL"
+#' @param client connection handle to the scheduler, if not provided the handle created by the last call to \code{\link{PAConnect}} will be used
+#' @return a PAData handle to be given as argument to \code{\link{PA}}
+#' @examples
+#' \dontrun{
+#' m <- matrix(runif(1e8), ncol = 1e4)
+#' h <- PAData(m)
+#' res <- PASolve(function(m, i) sum(m[, i]), h, 1:100)
+#' }
+#' @seealso  \code{\link{PA}} \code{\link{PASolve}}
+#' @export
+PAData <- function(object, space = "USER", client = PAClient()) {
+  space <- toupper(space)
+  if (!is.element(space, c("USER", "GLOBAL"))) {
+    stop(str_c("Unexpected data space ", space, ", expected USER or GLOBAL"))
+  }
+  if (client == NULL || is.jnull(client) ) {
+    stop("You are not currently connected to the scheduler, use PAConnect")
+  }
+  data.dir <- file.path(tempdir(), "padata")
+  dir.create(data.dir, recursive = TRUE, showWarnings = FALSE)
+  tmp <- tempfile(tmpdir = data.dir, fileext = ".rds")
+  saveRDS(object, tmp)
+  file <- str_c("padata_", unname(tools::md5sum(tmp)), ".rds")
+  file.rename(tmp, file.path(data.dir, file))
+
+  pushed <- pushFile(PAFile(file, pathdest = .content.store.dir, space = space, working.dir = data.dir), client = client)
+  if (!isTRUE(pushed)) {
+    stop(str_c("Could not upload the data to the ", space, " space"))
+  }
+  if (!.isTransferBatch()) {
+    unlink(file.path(data.dir, file))
+  }
+  return(new(Class="PAData", file = file, space = space))
+}
+
+setMethod("show", "PAData",
+          function(object) {
+            cat(str_c("PAData ", object@space, ":", .content.store.dir, "/", object@file, "\n"))
+          }
+)
+
+# the expression replacing the handle in the task call, evaluated on the node
+.dataCall <- function(data) {
+  return(bquote(.resolveData(.(data@file), .(data@space), .(.content.store.dir), .(getOption("PARConnector.data.cache.size", 4e9)))))
+}
+
+# read an object of the content store, the objects are kept in the R session of the node
+# until their total size exceeds max.size, the least recently used are removed first
+# the function is copied in the task scripts, it must not use other functions of the package
+.resolveData <- function(file, space, store.dir, max.size) {
+  if (!exists(".pa.data.cache", envir = globalenv(), inherits = FALSE)) {
+    assign(".pa.data.cache", new.env(hash = TRUE), envir = globalenv())
+  }
+  cache <- get(".pa.data.cache", envir = globalenv())
+  entry <- cache[[file]]
+  if (is.null(entry)) {
+    # the space is read directly when the node sees it as a local file system, otherwise the file transferred
+    # with the input files of the task is read from the localspace
+    root <- if (space == "GLOBAL") "globalspace" else "userspace"
+    path <- if (exists(root, envir = globalenv())) file.path(get(root, envir = globalenv()), store.dir, file) else ""
+    if (!file.exists(path) && exists("localspace", envir = globalenv())) {
+      path <- file.path(get("localspace", envir = globalenv()), store.dir, file)
+    }
+    if (!file.exists(path)) {
+      stop(paste0("Could not find the data ", file, " of the ", space, " space, neither in the space nor in the input files of the task"))
+    }
+    value <- readRDS(path)
+    entry <- list(value = value, size = as.numeric(object.size(value)))
+    cached <- ls(cache, all.names = TRUE)
+    sizes <- vapply(cached, function(name) cache[[name]]$size, 0)
+    used <- vapply(cached, function(name) cache[[name]]$used, 0)
+    while (length(cached) > 0 && sum(sizes) + entry$size > max.size) {
+      oldest <- which.min(used)
+      rm(list = cached[oldest], envir = cache)
+      cached <- cached[-oldest]
+      sizes <- sizes[-oldest]
+      used <- used[-oldest]
+    }
+    if (entry$size > max.size) {
+      return(value)
+    }
+  }
+  entry$used <- proc.time()[["elapsed"]]
+  assign(file, entry, envir = cache)
+  return(entry$value)
+}
@@ -7,6 +7,7 @@ PADeleteFile <- function(space, pathname,
       print(str_c("Error in PADeleteFile(",space,",",pathname,") :"))
       PAHandler(e,.print.error)
     })
+  .clearPushManifest(.remoteLocation(space, pathname))
   
   return (deleted)
 }
\ No newline at end of file
@@ -7,14 +7,16 @@ setClass(
     pathdest = "character", # data space path (can be empty if filepath is relative, in which case it will match the local relative path)
     space = "character", # remote data space name
     hash = "character", # hash directory used to separate the jobs, must not be empty
-    working.dir = "character" # local working directory, used to resolve local relative paths
+    working.dir = "character", # local working directory, used to resolve local relative paths
+    target = "character" # path where the task expects a file read from the content store, empty for other files
   ), 
   prototype=prototype(
     filepath = "",
     pathdest = "",
     space = "",
     hash = "",
-    working.dir = getwd()
+    working.dir = getwd(),
+    target = ""
   )
 )
 
@@ -67,45 +69,78 @@ setMethod("pushFile", "PAFile",
                 filepath <- object@filepath
               }
             }
-            tryCatch (         
-              return(PAPushFile(toupper(object@space),pathdest, filename, filepath, .print.stack = FALSE )),                      
+            # the upload is skipped if the same content was already pushed at this location
+            remote <- .remoteLocation(object@space, str_c(pathdest, "/", filename))
+            digest <- .fileDigest(filepath)
+            if (.isPushed(remote, digest)) {
+              return(TRUE)
+            }
+            tryCatch ({
+              if (.isTransferBatch()) {
+                # the push is recorded in the manifest once the transfer succeeds, see .endTransferBatch
+                .addToTransferBatch(.getTransferManager(client)$push(.getSpaceName(object@space), pathdest, filename, filepath), remote, digest)
+                pushed <- TRUE
+              } else {
+                pushed <- PAPushFile(toupper(object@space),pathdest, filename, filepath, client = client, .print.stack = FALSE )
+                if (isTRUE(pushed)) {
+                  .setPushed(remote, digest)
+                }
+              }
+              return(pushed)
+            },
               Exception = function(e) { print(str_c("error occurred when trying to push file ",filepath," -> ",toupper(object@space),":",pathdest,"/",filename))} 
               )
           } 
 )
 
+# location of a file pulled from the data space : remote pathname and local file path
+.pullLocation <- function(object) {
+  if (object@filepath == "") {
+    stop("Cannot transfer file if no local path is provided")
+  }
+  
+  filepath <- object@filepath
+  
+  if (object@pathdest == "") {
+    if (.isRelative(object@filepath)) {
+      if (object@hash == "") {
+        pathname <- str_c("/",str_replace_all(object@filepath,fixed("\\"), "/"))
+      } else {
+        pathname <- str_c("/",object@hash,"/",str_replace_all(object@filepath,fixed("\\"), "/"))
+      }
+      filepath <- file.path(object@working.dir, object@filepath)
+    } else {
+      stop(str_c(object@filepath, " is an absolute path and no dataspace destination path is provided"))
+    }
+  } else {
+    if (object@hash == "") {
+      pathname <- str_c("/",str_replace_all(object@pathdest,fixed("\\"), "/"),"/",basename(object@filepath))
+    } else {
+      pathname <- str_c("/",object@hash,"/",str_replace_all(object@pathdest,fixed("\\"), "/"),"/",basename(object@filepath))
+    }
+    if (.isRelative(object@filepath)) {
+      filepath <- file.path(object@working.dir,object@filepath)
+    }
+  }
+  return(list(pathname = pathname, filepath = filepath))
+}
+
 setMethod("pullFile", "PAFile",
           function(object, client = PAClient()) {    
             
-            if (object@filepath == "") {
-              stop("Cannot transfer file if no local path is provided")
-            }
+            location <- .pullLocation(object)
+            pathname <- location$pathname
+            filepath <- location$filepath
             
-            filename <- basename(object@filepath)
-            if (object@pathdest == "") {
-              if (.isRelative(object@filepath)) {
-                if (object@hash == "") {
-                  pathname <- str_c("/",str_replace_all(object@filepath,fixed("\\"), "/"))
-                } else {
-                  pathname <- str_c("/",object@hash,"/",str_replace_all(object@filepath,fixed("\\"), "/"))
-                }
-                filepath <- file.path(object@working.dir, object@filepath)
-              } else {
-                stop(str_c(object@filepath, " is an absolute path and no dataspace destination path is provided"))
-              }
-            } else {
-              if (object@hash == "") {
-                pathname <- str_c("/",str_replace_all(object@pathdest,fixed("\\"), "/"),"/",basename(object@filepath))
-              } else {
-                pathname <- str_c("/",object@hash,"/",str_replace_all(object@pathdest,fixed("\\"), "/"),"/",basename(object@filepath))
-              }
-              if (.isRelative(object@filepath)) {
-                filepath <- file.path(object@working.dir,object@filepath)
+            if (.isTransferBatch()) {
+              if (.isRelative(filepath)) {
+                filepath <- file.path(getwd(), filepath)
               }
+              .addToTransferBatch(.getTransferManager(client)$pull(.getSpaceName(object@space), pathname, filepath))
+              return(TRUE)
             }
-            
             tryCatch (         
-              return(PAPullFile(toupper(object@space),pathname, filepath, .print.stack = FALSE  )),                      
+              return(PAPullFile(toupper(object@space),pathname, filepath, client = client, .print.stack = FALSE  )),                      
               Exception = function(e) { print(str_c("Warning, error occurred when trying to pull file ",toupper(object@space),":",pathname," -> ",filepath))} 
             )                     
             
@@ -171,6 +206,9 @@ setMethod("toString","PAFile",
           function(x, input=TRUE) {
             if (x@filepath == "") {
               output <- str_c("$",x@space, "/",x@pathdest)
+              if (x@target != "") {
+                output <- str_c(output, " -> ", x@target)
+              }
             } else {
               if (.isRelative(x@filepath)) {
                 filepath <- file.path(x@working.dir, x@filepath)
@@ -193,6 +231,113 @@ setMethod("toString","PAFile",
           }
 )
 
+# content digest of a local file, recomputed only if the size or modification time of the file changed
+# the digests and the manifest are hashed environments, so that large jobs do not copy them for each file
+.fileDigest <- function(filepath) {
+  if (!exists("file.digests", envir=cacheEnv)) {
+    assign("file.digests", new.env(hash = TRUE), envir=cacheEnv)
+  }
+  digests <- get("file.digests", envir=cacheEnv)
+  info <- file.info(filepath)
+  key <- normalizePath(filepath, winslash = "/", mustWork = FALSE)
+  entry <- digests[[key]]
+  if (is.null(entry) || entry$size != info$size || entry$mtime != info$mtime) {
+    entry <- list(size = info$size, mtime = info$mtime, digest = unname(tools::md5sum(filepath)))
+    assign(key, entry, envir = digests)
+  }
+  return(entry$digest)
+}
+
+# client side manifest of the pushed files, the digest of the content pushed at each remote location
+.pushManifest <- function() {
+  if (!exists("push.manifest", envir=cacheEnv)) {
+    assign("push.manifest", new.env(hash = TRUE), envir=cacheEnv)
+  }
+  return(get("push.manifest", envir=cacheEnv))
+}
+
+.isPushed <- function(remote, digest) {
+  pushed <- .pushManifest()[[remote]]
+  if (is.null(pushed) && .isTransferBatch()) {
+    # pushed in the current batch, not recorded until its transfer succeeds
+    pushed <- get("transfer.batch", envir=cacheEnv)$pushes[[remote]]$digest
+  }
+  return(!is.na(digest) && !is.null(pushed) && pushed == digest)
+}
+
+.setPushed <- function(remote, digest) {
+  assign(remote, digest, envir = .pushManifest())
+}
+
+# forget the remote locations under the given path, after they are deleted or when the client changes
+.clearPushManifest <- function(prefix = "") {
+  manifest <- .pushManifest()
+  remotes <- ls(manifest, all.names = TRUE)
+  remove(list = remotes[substr(remotes, 1, nchar(prefix)) == prefix], envir = manifest)
+}
+
+# location of the content of each digest in the content store of each space
+.contentStore <- function() {
+  if (!exists("content.store", envir=cacheEnv)) {
+    assign("content.store", new.env(hash = TRUE), envir=cacheEnv)
+  }
+  return(get("content.store", envir=cacheEnv))
+}
+
+# a local input file is uploaded to the content store, in a directory named after its digest, and the task reads it from there
+# the same content is uploaded once per session, whatever its name, its local path or the path where the tasks expect it
+# the returned PAFile references the stored file and the path where the task expects it, see .storedInputsScript
+.storeInputFile <- function(pafile, client = PAClient()) {
+  if (.isRelative(pafile@filepath)) {
+    filepath <- file.path(pafile@working.dir, pafile@filepath)
+  } else {
+    filepath <- pafile@filepath
+  }
+  digest <- .fileDigest(filepath)
+  if (is.na(digest)) {
+    pushFile(pafile, client = client)
+    return(pafile)
+  }
+  key <- str_c(toupper(pafile@space), ":", digest)
+  stored <- .contentStore()[[key]]
+  # the location is reused only if its upload succeeded, or is in progress in the current batch
+  if (is.null(stored) || !.isPushed(.remoteLocation(pafile@space, str_c("/", stored)), digest)) {
+    stored <- str_c(.content.store.dir, "/", digest, "/", basename(filepath))
+    pushFile(PAFile(filepath, pathdest = dirname(stored), space = pafile@space, working.dir = pafile@working.dir), client = client)
+    assign(key, stored, envir = .contentStore())
+  }
+  storedfile <- PAFile(pathdest = stored, space = pafile@space)
+  storedfile@target <- getSelector(pafile)
+  return(storedfile)
+}
+
+# R code copying the input files read from the content store to the paths expected by the task, empty if there are none
+.storedInputsScript <- function(pafiles) {
+  stored <- Filter(function(pafile) !is.null(pafile) && pafile@target != "", pafiles)
+  if (length(stored) == 0) {
+    return("")
+  }
+  from <- str_c(deparse(vapply(stored, getSelector, "", USE.NAMES = FALSE)), collapse = "\n")
+  to <- str_c(deparse(vapply(stored, function(pafile) pafile@target, "", USE.NAMES = FALSE)), collapse = "\n")
+  return(str_c(.inlineFunction(".placeStoredInputs"), ".placeStoredInputs(", from, ", ", to, ")\n"))
+}
+
+# copies the files of the content store to the paths expected by the task, a stored file can be expected at several paths
+# the function is copied in the task scripts, it must not use other functions of the package
+.placeStoredInputs <- function(from, to) {
+  for (i in seq_along(from)) {
+    dir.create(dirname(to[i]), recursive = TRUE, showWarnings = FALSE)
+    if (!file.copy(from[i], to[i], overwrite = TRUE)) {
+      stop("Could not copy the input file ", to[i], " from ", from[i])
+    }
+  }
+}
+
+.remoteLocation <- function(space, path) {
+  path <- str_replace_all(str_replace_all(path, fixed("\\"), "/"), "/(\\./)+", "/")
+  return(str_c(toupper(space), ":", str_replace_all(path, "/+", "/")))
+}
+
 .isRelative <- function(filepath) {
   jfile <- .jnew(J("java.io.File"),filepath)
   return(!jfile$isAbsolute())
@@ -7,7 +7,7 @@ PAGetResult <- function(job.id,
   
   
   job.state <- j_try_catch({
-    return (J(client, "getJobState", toString(job.id)))
+    return (.getJobState(job.id, client))
   })
   task.states <- job.state$getTasks()
   
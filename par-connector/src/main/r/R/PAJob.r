@@ -32,25 +32,50 @@ setMethod("getJavaObject", "PAJob",
 
  
 
+.addJavaTask <- function(jo, tsk) {
+  jtsk <- getJavaObject(tsk)
+  if (length(tsk@inputfiles) > 0) {
+    for (i in 1:length(tsk@inputfiles)) {
+      pafile <- tsk@inputfiles[[i]]                
+      jtsk$addInputFiles(getSelector(pafile), getMode(pafile,TRUE))
+    }
+  }
+  if (length(tsk@outputfiles) > 0) {
+    for (i in 1:length(tsk@outputfiles)) {
+      pafile <- tsk@outputfiles[[i]]                
+      jtsk$addOutputFiles(getSelector(pafile), getMode(pafile,FALSE))
+    }
+  }
+  jo$addTask(jtsk)
+}
+
 setReplaceMethod("addTask" ,"PAJob" ,
           function(object,value) {
             tsk <- value
             object@tasks[[getName(tsk)]] <- tsk
-            jo = object@javaObject
-            jtsk <- getJavaObject(tsk)
-            if (length(tsk@inputfiles) > 0) {
-              for (i in 1:length(tsk@inputfiles)) {
-                pafile <- tsk@inputfiles[[i]]                
-                jtsk$addInputFiles(getSelector(pafile), getMode(pafile,TRUE))
-              }
-            }
-            if (length(tsk@outputfiles) > 0) {
-              for (i in 1:length(tsk@outputfiles)) {
-                pafile <- tsk@outputfiles[[i]]                
-                jtsk$addOutputFiles(getSelector(pafile), getMode(pafile,FALSE))
-              }
-            }
-            jo$addTask(jtsk)
+            .addJavaTask(object@javaObject, tsk)
+            return(object)
+          }
+)
+
+# adds a list of tasks at once, adding them one by one with addTask copies the list of tasks of the job each time
+# the java tasks and their files are added with a single call to JobBuilder
+setReplaceMethod("addTasks" ,"PAJob" ,
+          function(object,value) {
+            object@tasks <- c(object@tasks, setNames(value, sapply(value, getName)))
+            files <- lapply(seq_along(value), function(i) {
+              tsk <- value[[i]]
+              pafiles <- c(tsk@inputfiles, tsk@outputfiles)
+              list(index = rep(i - 1L, length(pafiles)),
+                   selector = vapply(pafiles, getSelector, ""),
+                   space = vapply(pafiles, function(pafile) pafile@space, ""),
+                   input = rep(c(TRUE, FALSE), c(length(tsk@inputfiles), length(tsk@outputfiles))))
+            })
+            column <- function(name, type) unlist(c(list(type), lapply(files, `[[`, name)))
+            J("org.ow2.parconnector.job.JobBuilder")$addTasks(object@javaObject,
+                .jarray(lapply(value, getJavaObject), contents.class = "org/ow2/proactive/scheduler/common/task/Task"),
+                .jarray(column("index", integer(0))), .jarray(column("selector", character(0))),
+                .jarray(column("space", character(0))), .jarray(column("input", logical(0))))
             return(object)
           }
 )
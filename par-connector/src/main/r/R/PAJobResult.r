@@ -6,24 +6,28 @@ setClass(
     job.id = "character",
     task.names = "character",
     client = "jobjRef",
-    results = "jobjRef"
+    results = "jobjRef",
+    speculative = "logical",
+    copies = "environment"
   ) ,
   prototype=prototype(
     job = NULL,
     job.id = "-1",
     task.names = "",
     client = NULL,
-    results = NULL
+    results = NULL,
+    speculative = FALSE
   )
 )
 
 
 
-PAJobResult <- function(job,jid,tnames, client) {
+# copies contains the ids of the jobs running a copy of a straggler task, indexed by task name, see the speculative parameter of PASolve
+PAJobResult <- function(job,jid,tnames, client, speculative = FALSE) {
   
   results =  new(J("java.util.HashMap"))
   
-  new (Class="PAJobResult" , job = job, job.id = jid, task.names = tnames, client=client, results = results)
+  new (Class="PAJobResult" , job = job, job.id = jid, task.names = tnames, client=client, results = results, speculative = speculative, copies = new.env(hash = TRUE))
 }
 
 setMethod(
@@ -39,7 +43,7 @@ setMethod(
         selected.names <- i    
       }          
       
-      return (new (Class="PAJobResult" , job = x@job, job.id = x@job.id, task.names = selected.names, client = x@client, results = x@results))
+      return (new (Class="PAJobResult" , job = x@job, job.id = x@job.id, task.names = selected.names, client = x@client, results = x@results, speculative = x@speculative, copies = x@copies))
   }
 )
 
@@ -58,77 +62,250 @@ setMethod(
   return(logs)
 }
 
-.getRResultFromJavaResult <- function(paresult, tresult, i, callback) {
+.printTaskLogs <- function(paresult, tname, tresult) {
+  .printLog(tname, .getLogsFromJavaResult(paresult, tresult))
+}
+
+.printLog <- function(tname, log) {
+  if (!is.null(log) && !(log == "")) {
+    cat(str_c(tname, " : "))
+    cat("\n")
+    cat(log)
+    cat("\n")
+  }
+}
+
+.getRResultFromJavaResult <- function(paresult, tresult, i, callback, pull.files = TRUE) {
   if(tresult$hadException()) {  
     return(simpleError(tresult$value()))               
   } else {
-    # transferring output files
-    tasks <- paresult@job@tasks
-    
-    outfiles <- tasks[[paresult@task.names[i]]]@outputfiles
-    if (length(outfiles) > 0) {
+    return(.getRResultFromValue(paresult, .serializedValue(tresult), i, callback, pull.files))
+  }
+}
+
+# the serialized R result of a task is copied once into a raw vector by .jcall, instead of going through
+# the generic conversion of rJava, other values (e.g. references to spilled results) are returned as they are
+.serializedValue <- function(tresult) {
+  value <- .jcall("org/ow2/parconnector/result/ResultBatch", "[B", "serializedValue", .jcast(tresult, "org/ow2/proactive/scheduler/common/task/TaskResult"))
+  if (length(value) == 0) {
+    return(tresult$value())
+  }
+  return(value)
+}
+
+# the R result from the value of a task result, a serialized R object or a reference to a spilled result
+.getRResultFromValue <- function(paresult, value, i, callback, pull.files = TRUE) {
+  # transferring output files
+  tasks <- paresult@job@tasks
+  
+  outfiles <- tasks[[paresult@task.names[i]]]@outputfiles
+  if (pull.files && length(outfiles) > 0) {
+    # the output files are pulled concurrently, they are available once the batch ends, before the callback is called
+    # a failed pull is only reported, as when the files were pulled one by one
+    batch <- .beginTransferBatch()
+    tryCatch({
       for (j in 1:length(outfiles)) {
         pafile <- outfiles[[j]]
         if (isFileTransfer(pafile)) {
           pullFile(pafile, client = paresult@client)
         }
       }
-    }
+    }, finally = if (batch) .endTransferBatch("Pulling output files", warn.failures = TRUE))
+  }
 
-    jobj <- tresult$value()
-    robj <- .unserializeObj(jobj)
+  jobj <- .resolveResultReference(value, paresult@client)
+  robj <- .unserializeObj(jobj)
+  # saved for the next creations of the same task, see PAMemoize
+  .saveMemoizedValue(tasks[[paresult@task.names[i]]], robj)
 
-    if (!is.null(callback)) {
-       return(callback(robj))
+  if (!is.null(callback)) {
+    if (tasks[[paresult@task.names[i]]]@chunk.length > 0) {
+      # the result of a chunk task contains the results of its elements
+      return(lapply(robj, callback))
     }
-    return(robj)
+    return(callback(robj))
   }
+  return(robj)
+}
 
+# a result spilled by the R engine is a reference to a file transferred to the USER space,
+# the file is pulled and read only when the result is requested
+.resolveResultReference <- function(obj, client) {
+  if (class(obj) == "jobjRef" && obj %instanceof% "org.ow2.parscript.RResultReference") {
+    localfile <- tempfile(fileext = ".rds")
+    PAPullFile("USER", str_c("/", obj$getPath()), localfile, client = client)
+    obj <- readRDS(localfile)
+    file.remove(localfile)
+  }
+  return(obj)
 }
 
 .unserializeObj <- function(obj) {
+    # fast path, a serialized result is unserialized directly from the raw vector
+    if (is.raw(obj)) {
+      return(.unserializeResult(obj))
+    }
     if (class(obj) == "jobjRef") {
       rexp <- J("org.rosuda.jrs.RexpConvert")$jobj2rexp(obj)
       eng <- .jengine()
-      eng.assign("tmpoutput",rexp)
-      obj <- tmpoutput
+      eng$assign("tmpoutput",rexp)
+      obj <- get("tmpoutput", envir = globalenv())
     }
-    if (is.na(obj) || is.null(obj)) {
+    if (is.null(obj) || (length(obj) == 1 && is.na(obj))) {
       return(obj)
     } else {
-      return(unserialize(obj))
+      return(.unserializeResult(obj))
     }
 }
 
 setClassUnion("PAJobResultOrMissing", c("PAJobResult", "missing"))
 
+# the result of a task as a named list, with one entry per element for a chunk task (see the chunk.size parameter of PA)
+.expandResult <- function(paresult, tname, result) {
+  task <- paresult@job@tasks[[tname]]
+  if (is.null(task) || task@chunk.length == 0) {
+    return(setNames(list(result), tname))
+  }
+  names <- str_c(tname, ".", seq_len(task@chunk.length))
+  if (is.null(result) || inherits(result, "error")) {
+    # not available yet or failed, for all the elements
+    return(setNames(rep(list(result), task@chunk.length), names))
+  }
+  return(setNames(as.list(result), names))
+}
+
+# the results, logs and exception flags of all the tasks are read from a ResultBatch in a few calls
 .getAvailableResults <- function(paresult, callback) {
 
   tnames <- paresult@task.names
-  results <- setNames(vector("list",length(tnames)),tnames)
-  for (i in 1:length(tnames)) {  
-    tresult <- paresult@results$get(tnames[i])
-    
-    if (!is.null(tresult)) {
-      log <- .getLogsFromJavaResult(paresult, tresult)
-      if (!is.null(log) && !(log == "")) {
-        cat(str_c(tnames[i], " : "))
-        cat("\n")
-        cat(log)
-        cat("\n")
-      }
-      result <- .getRResultFromJavaResult(paresult, tresult, i, callback)
-      if (is.null(result)) {
-        # nothing to do, the list is initialized with null elements
-        # i.e. list[[i]] <- NULL actually removes the element i in the list
+  batch <- .jnew(J("org.ow2.parconnector.result.ResultBatch"), .jcast(paresult@results, "java.util.Map"), .jarray(tnames))
+  available <- batch$getAvailable()
+  exceptions <- batch$getExceptions()
+  logs <- batch$getLogs()
+  offsets <- batch$getOffsets()
+  lengths <- batch$getLengths()
+  values <- batch$getValues()
+  large <- batch$getLarge()
+  
+  results <- vector("list", length(tnames))
+  for (i in seq_along(tnames)) {  
+    # the entries of the results not available yet are NULL
+    result <- NULL
+    if (available[i]) {
+      .printLog(tnames[i], logs[i])
+      if (exceptions[i]) {
+        result <- simpleError(batch$getTaskResult(as.integer(i - 1))$value())
+      } else if (large[i]) {
+        # copied once, extracting it from the concatenated results would copy it again
+        result <- .getRResultFromValue(paresult, .jcall(batch, "[B", "getSerializedValue", as.integer(i - 1)), i, callback)
+      } else if (lengths[i] < 0) {
+        result <- .getRResultFromValue(paresult, batch$getValue(as.integer(i - 1)), i, callback)
       } else {
-        results[[tnames[i]]] <- result
+        result <- .getRResultFromValue(paresult, values[offsets[i] + seq_len(lengths[i])], i, callback)
       }
     }
+    results[[i]] <- .expandResult(paresult, tnames[i], result)
+  }
+  return(do.call(c, results))
+}
+
+# the results saved by a previous run are available without waiting for the scheduler
+.putSavedResults <- function(paresult, tasks) {
+  SavedTaskResult <- J("org.ow2.parconnector.result.SavedTaskResult")
+  for (task in tasks) {
+    value <- serialize(readRDS(.memoFile(task@memo.key)), NULL)
+    paresult@results$put(getName(task), SavedTaskResult$of(getName(task), .jarray(value)))
+  }
+  return(invisible(NULL))
+}
+
+# the names of the tasks without result, as a java list
+.missingTasks <- function(paresult) {
+  return(J("org.ow2.parconnector.result.ResultBatch")$missingTasks(.jcast(paresult@results, "java.util.Map"), .jarray(paresult@task.names)))
+}
+
+# a task is duplicated only if it runs the same way in a separate job: without dependencies, as their results are not available
+# to another job, and without output files, as both copies would write them
+.canSpeculate <- function(task) {
+  return(length(getDependencies(task)) == 0 && length(task@outputfiles) == 0)
+}
+
+# submits a copy of a straggler task in a separate job, as tasks cannot be added to a running job, the copy reads the same
+# pasolve_*.rdata files and runs on another host than the original, the task of the submitted job is not modified
+.speculateTask <- function(paresult, tname, host, client) {
+  selection.scripts <- list()
+  if (host != "") {
+    selection.scripts <- list(J("org.ow2.parscript.selection.SelectionScripts")$excludeHostName(host))
   }
-  return(results)
+  jtask <- J("org.ow2.parconnector.speculation.TaskCopies")$copy(.jcast(getJavaObject(paresult@job@tasks[[tname]]), "org/ow2/proactive/scheduler/common/task/ScriptTask"),
+                                                                .jarray(selection.scripts, contents.class = "org/ow2/proactive/scripting/SelectionScript"))
+  copy <- PAJob(str_c(getName(paresult@job), "_", tname), str_c("Copy of the task ", tname, " of the job ", paresult@job.id))
+  copy@javaObject$setPriority(paresult@job@javaObject$getPriority())
+  copy@javaObject$addTask(jtask)
+  copy.id <- tryCatch(client$submit(getJavaObject(copy)), Exception = function(e) PAHandler(e))
+  assign(tname, copy.id$value(), envir = paresult@copies)
+  cat(str_c("Task ", tname, " is slow, copy submitted (id : ", copy.id$value(), ")\n"))
 }
 
+# waits for all the tasks by polling the job state, straggler tasks are duplicated and the first copy to finish gives the result,
+# the other one is killed
+.waitForAllSpeculative <- function(paresult, timeout, client, interval = 1000) {
+  Detector <- J("org.ow2.parconnector.speculation.StragglerDetector")
+  detector <- .jnew(Detector, getOption("PARConnector.speculation.finished", 0.75), getOption("PARConnector.speculation.factor", 2))
+  results <- .jcast(paresult@results, "java.util.Map")
+  copies <- paresult@copies
+  # a killed task fails, which cancels the job if it was submitted with cancelOnError
+  kill.original <- !paresult@job@javaObject$isCancelJobOnError()
+  start <- proc.time()[["elapsed"]]
+  repeat {
+    tnames <- as.character(J("org.ow2.parconnector.result.ResultBatch")$missingTaskNames(results, .jarray(paresult@task.names)))
+    if (length(tnames) == 0) {
+      break
+    }
+    state <- .getJobState(paresult@job.id, client, refresh = TRUE)
+    
+    finished <- as.character(Detector$finishedTasks(state, .jarray(tnames)))
+    if (length(finished) > 0) {
+      task.list <- J("java.util.Arrays")$asList(.jarray(finished))
+      listentry <- tryCatch(client$waitForAllTasks(paresult@job.id, task.list, .jlong(timeout)), Exception = function(e) PAHandler(e))
+      J("org.ow2.parconnector.result.ResultBatch")$putAll(results, listentry)
+      for (tname in intersect(finished, ls(copies))) {
+        tryCatch(client$killJob(get(tname, envir = copies)), Exception = function(e) NULL)
+        rm(list = tname, envir = copies)
+      }
+    }
+    
+    for (tname in setdiff(intersect(tnames, ls(copies)), finished)) {
+      copy.id <- get(tname, envir = copies)
+      copy.state <- .getJobState(copy.id, client, refresh = TRUE)
+      if (length(Detector$finishedTasks(copy.state, .jarray(tname))) > 0) {
+        tresult <- tryCatch(client$getTaskResult(copy.id, tname), Exception = function(e) PAHandler(e))
+        # a failed copy is ignored, the original is still running
+        if (!tresult$hadException()) {
+          paresult@results$put(tname, tresult)
+          if (kill.original) {
+            tryCatch(client$killTask(paresult@job.id, tname), Exception = function(e) NULL)
+          }
+        }
+        rm(list = tname, envir = copies)
+      }
+    }
+    
+    candidates <- Filter(function(tname) .canSpeculate(paresult@job@tasks[[tname]]), setdiff(tnames, c(finished, ls(copies))))
+    if (length(candidates) > 0) {
+      stragglers <- as.character(detector$stragglers(state, .jarray(paresult@task.names)))
+      for (tname in intersect(stragglers, candidates)) {
+        .speculateTask(paresult, tname, Detector$executionHost(state, tname), client)
+      }
+    }
+    
+    if ((proc.time()[["elapsed"]] - start) * 1000 >= timeout) {
+      stop("Timeout reached while waiting for the results of job ", paresult@job.id)
+    }
+    Sys.sleep(interval / 1000)
+  }
+  .invalidateJobState(paresult@job.id, paresult@client)
+}
 
 setMethod("PAWaitFor","PAJobResultOrMissing", function(paresult = PALastResult(), timeout = .Machine$integer.max, client = PAClient(), callback = NULL) {
             
@@ -136,18 +313,13 @@ setMethod("PAWaitFor","PAJobResultOrMissing", function(paresult = PALastResult()
               stop("You are not currently connected to the scheduler, use PAConnect")
             }             
             
-            tnames <- paresult@task.names            
-            
-            selected.names <- NULL
-            task.list <- .jnew(J("java.util.ArrayList"))
-            
+            # the tasks of a local scheduler are not copied, they all run on the same host
+            if (paresult@speculative && is.null(.localScheduler(client))) {
+              .waitForAllSpeculative(paresult, timeout, client)
+              return (.getAvailableResults(paresult, callback))
+            }
             
-            for (i in 1:length(tnames)) {
-              if (is.null(paresult@results$get(tnames[i]))) {
-                selected.names <- c(selected.names,tnames[i])
-                task.list$add(tnames[i])
-              }
-            }       
+            task.list <- .missingTasks(paresult)
             if (task.list$size() > 0) {
               tryCatch ({
                 listentry <- client$waitForAllTasks(paresult@job.id,task.list,.jlong(timeout))
@@ -156,12 +328,8 @@ setMethod("PAWaitFor","PAJobResultOrMissing", function(paresult = PALastResult()
                 stop()
               })           
               
-              for (i in 0:(task.list$size()-1)) {              
-                entry <- listentry$get(as.integer(i))             
-                tresult <- entry$getValue()  
-                
-                paresult@results$put(selected.names[i+1], tresult)                                                
-              }
+              J("org.ow2.parconnector.result.ResultBatch")$putAll(.jcast(paresult@results, "java.util.Map"), listentry)
+              .invalidateJobState(paresult@job.id, paresult@client)
             }
             
             return (.getAvailableResults(paresult, callback))            
@@ -175,18 +343,7 @@ setMethod("PAWaitAny","PAJobResultOrMissing", function(paresult = PALastResult()
     stop("You are not currently connected to the scheduler, use PAConnect")
   }             
   
-  tnames <- paresult@task.names            
-  
-  selected.names <- NULL
-  task.list <- .jnew(J("java.util.ArrayList"))
-  
-  
-  for (i in 1:length(tnames)) {
-    if (is.null(paresult@results$get(tnames[i]))) {
-      selected.names <- c(selected.names,tnames[i])
-      task.list$add(tnames[i])
-    }
-  }       
+  task.list <- .missingTasks(paresult)
   if (task.list$size() > 0) {
     tryCatch ({
       entry <- client$waitForAnyTask(paresult@job.id,task.list,.jlong(timeout))
@@ -199,8 +356,9 @@ setMethod("PAWaitAny","PAJobResultOrMissing", function(paresult = PALastResult()
     tresult <- entry$getValue() 
     
     paresult@results$put(tname, tresult)   
+    .invalidateJobState(paresult@job.id, paresult@client)
     res <- .getAvailableResults(paresult, callback)
-    return(res[tname])
+    return(res[names(.expandResult(paresult, tname, NULL))])
   }
   return(NA)
   
@@ -209,15 +367,264 @@ setMethod("PAWaitAny","PAJobResultOrMissing", function(paresult = PALastResult()
 )
 
 
+#' @export
+setClass(
+  Class="PAResultIterator", 
+  representation = representation(
+    paresult = "PAJobResult",
+    stream = "jobjRef"
+  )
+)
+
+#' Iterates over the results of a PAJobResult object as the tasks finish
+#'
+#' \code{PAResultIterator} starts waiting in the background for the tasks whose results were not received yet. As soon as a task finishes, its output files are
+#' transferred in the background, so that results can be processed with \code{\link{PANextResult}} while other tasks are still running.
+#'
+#' @param paresult a PAJobResult object
+#' @param client connection handle to the scheduler, if not provided the handle created by the last call to \code{\link{PAConnect}} will be used
+#' @return a PAResultIterator object
+#' @seealso \code{\link{PANextResult}} \code{\link{PAForEachResult}} \code{\link{PAWaitAny}}
+#' @examples
+#'  \dontrun{
+#'  res <- PASolve("cos", 1:10)
+#'  it <- PAResultIterator(res)
+#'  while (PAHasNextResult(it)) {
+#'    print(PANextResult(it))
+#'  }
+#'  }
+#' @export
+PAResultIterator <- function(paresult = PALastResult(), client = PAClient()) {
+  
+  if (client == NULL || is.jnull(client) ) {
+    stop("You are not currently connected to the scheduler, use PAConnect")
+  }
+  
+  tnames <- J("org.ow2.parconnector.result.ResultBatch")$missingTaskNames(.jcast(paresult@results, "java.util.Map"), .jarray(paresult@task.names))
+  jclient <- .jcast(client, "org.ow2.proactive.scheduler.rest.ISchedulerClient")
+  stream <- .jnew(J("org.ow2.parconnector.result.ResultStream"), jclient, .getTransferManager(client), paresult@job.id, .jarray(as.character(tnames)))
+  
+  tasks <- paresult@job@tasks
+  for (tname in tnames) {
+    for (pafile in tasks[[tname]]@outputfiles) {
+      if (isFileTransfer(pafile)) {
+        location <- .pullLocation(pafile)
+        filepath <- location$filepath
+        if (.isRelative(filepath)) {
+          filepath <- file.path(getwd(), filepath)
+        }
+        stream$addOutputFile(tname, .getSpaceName(pafile@space), location$pathname, filepath)
+      }
+    }
+  }
+  stream$start()
+  
+  return (new (Class="PAResultIterator", paresult = paresult, stream = stream))
+}
+
+#' @rdname PAResultIterator
+#' @param iterator a PAResultIterator object
+#' @return \code{PAHasNextResult} returns TRUE if some results were not consumed yet
+#' @export
+PAHasNextResult <- function(iterator) {
+  return (iterator@stream$hasNext())
+}
+
+#' Returns the next finished result of a PAResultIterator
+#'
+#' The result is returned as a list with one element, named by the task name, like \code{\link{PAWaitAny}}. A task created with a chunk size gives one element per parameter set. The output files of the task are transferred
+#' when the result is returned. The result is also stored in the PAJobResult object, a subsequent \code{\link{PAWaitFor}} will not wait for it again.
+#'
+#' @param iterator a PAResultIterator object
+#' @param timeout a long value specifying an optional timeout in milisecond
+#' @param callback a single parameter function which is called with the result. Default to NULL.
+#' @return the next result, NULL if no task finished before the timeout or NA if all results were consumed
+#' @seealso \code{\link{PAResultIterator}} \code{\link{PAForEachResult}}
+#' @export
+PANextResult <- function(iterator, timeout = .Machine$integer.max, callback = NULL) {
+  
+  if (!PAHasNextResult(iterator)) {
+    return(NA)
+  }
+  
+  paresult <- iterator@paresult
+  tryCatch ({
+    streamed <- iterator@stream$nextResult(.jlong(timeout))
+  } , Exception = function(e) {
+    e$jobj$printStackTrace()
+    stop()
+  })
+  if (is.jnull(streamed)) {
+    return(NULL)
+  }
+  
+  tname <- streamed$getTaskName()
+  tresult <- streamed$getTaskResult()
+  paresult@results$put(tname, tresult)
+  .invalidateJobState(paresult@job.id, paresult@client)
+  
+  .printTaskLogs(paresult, tname, tresult)
+  # the output files were transferred by the iterator
+  result <- .getRResultFromJavaResult(paresult, tresult, match(tname, paresult@task.names), callback, pull.files = FALSE)
+  return(.expandResult(paresult, tname, result))
+}
+
+#' Calls a function on each result of a PAJobResult object as the tasks finish
+#'
+#' \code{PAForEachResult} processes the results in the order the tasks finish, the output files and results of the next tasks are received
+#' in the background while \code{FUN} runs. The unserialized results are not kept in memory, only the values returned by \code{FUN}.
+#'
+#' @param paresult a PAJobResult object
+#' @param FUN a function called with the result and the task name
+#' @param timeout a long value specifying an optional timeout in milisecond for each result
+#' @param client connection handle to the scheduler, if not provided the handle created by the last call to \code{\link{PAConnect}} will be used
+#' @return the values returned by \code{FUN}, named by task name, in the order of completion
+#' @seealso \code{\link{PAResultIterator}} \code{\link{PAWaitFor}}
+#' @examples
+#'  \dontrun{
+#'  res <- PASolve("cos", 1:10)
+#'  PAForEachResult(res, function(val, tname) cat(tname, ":", val, "\n"))
+#'  }
+#' @export
+PAForEachResult <- function(paresult = PALastResult(), FUN, timeout = .Machine$integer.max, client = PAClient()) {
+  
+  iterator <- PAResultIterator(paresult, client)
+  on.exit(iterator@stream$close())
+  
+  values <- list()
+  while (PAHasNextResult(iterator)) {
+    res <- PANextResult(iterator, timeout)
+    if (is.null(res)) {
+      stop("Timeout reached while waiting for the results of job ", paresult@job.id)
+    }
+    for (name in names(res)) {
+      values[name] <- list(FUN(res[[name]], name))
+    }
+  }
+  return(values)
+}
+
+#' Reads the log of a task while it runs
+#'
+#' \code{PATaskLog} returns the part of the log of a task starting at \code{offset}, of at most \code{max.chars} characters, with the offset of the next read.
+#' The output of the tasks is received from the scheduler as they run, from the first call for the job. Reading the log repeatedly with the returned offset gives only the new lines. See \code{\link{PATailLogs}} to follow the logs of all the tasks of a job.
+#'
+#' @param paresult a PAJobResult object
+#' @param task.name name of the task
+#' @param offset number of characters of the log already read. Default to 0.
+#' @param max.chars maximum number of characters returned. Default to 65536.
+#' @param client connection handle to the scheduler, if not provided the handle created by the last call to \code{\link{PAConnect}} will be used
+#' @return a list with the elements \code{log}, the text read, and \code{offset}, the offset of the next read
+#' @seealso \code{\link{PATailLogs}}
+#' @export
+PATaskLog <- function(paresult = PALastResult(), task.name, offset = 0, max.chars = 65536, client = PAClient()) {
+  
+  if (client == NULL || is.jnull(client) ) {
+    stop("You are not currently connected to the scheduler, use PAConnect")
+  }
+  
+  part <- tryCatch(.getTaskLogTail(paresult, client)$readFrom(task.name, .jlong(offset), as.integer(max.chars)),
+                   Exception = function(e) PAHandler(e))
+  return(list(log = part$getText(), offset = part$getNextOffset()))
+}
+
+# the output of the tasks of a job is received once by a TaskLogTail kept for the next calls to PATaskLog
+.getTaskLogTail <- function(paresult, client) {
+  if (!exists("log.tails", envir=cacheEnv)) {
+    assign("log.tails", list(), envir=cacheEnv)
+  }
+  tails <- get("log.tails", envir=cacheEnv)
+  for (entry in tails) {
+    if (entry$job.id == paresult@job.id && .jequals(entry$client, client)) {
+      return(entry$tail)
+    }
+  }
+  jclient <- .jcast(client, "org.ow2.proactive.scheduler.rest.ISchedulerClient")
+  tail <- .jnew(J("org.ow2.parconnector.log.TaskLogTail"), jclient, paresult@job.id, .jarray(paresult@task.names))
+  tail$listen()
+  assign("log.tails", c(tails, list(list(client = client, job.id = paresult@job.id, tail = tail))), envir=cacheEnv)
+  return(tail)
+}
+
+#' Follows the logs of the tasks of a job while they run
+#'
+#' \code{PATailLogs} receives the output of the tasks from the scheduler as they run, every \code{interval} milliseconds it calls \code{callback} with the lines appended since the previous read, until the job is finished or the timeout is reached.
+#' R only receives the new lines, at most \code{max.chars} characters per task and per read. This allows to notice misbehaving tasks without waiting for their results.
+#'
+#' @param paresult a PAJobResult object
+#' @param callback a function called with the task name and the new log text, by default the text is printed with the task name
+#' @param interval delay in milliseconds between two reads. Default to 2000.
+#' @param timeout a long value specifying an optional timeout in milisecond
+#' @param max.chars maximum number of characters read per task and per read. Default to 65536.
+#' @param client connection handle to the scheduler, if not provided the handle created by the last call to \code{\link{PAConnect}} will be used
+#' @return invisible NULL
+#' @seealso \code{\link{PATaskLog}} \code{\link{PAWaitFor}}
+#' @examples
+#'  \dontrun{
+#'  res <- PASolve(function(x) {for (i in 1:10) {print(i); Sys.sleep(10)}; x}, 1:4)
+#'  PATailLogs(res)
+#'  }
+#' @export
+PATailLogs <- function(paresult = PALastResult(), callback = .printLog, interval = 2000, timeout = .Machine$integer.max, max.chars = 65536, client = PAClient()) {
+  
+  if (client == NULL || is.jnull(client) ) {
+    stop("You are not currently connected to the scheduler, use PAConnect")
+  }
+  
+  if (paresult@job.id == "-1") {
+    # all the results were saved by a previous run, no task runs
+    return(invisible(NULL))
+  }
+  jclient <- .jcast(client, "org.ow2.proactive.scheduler.rest.ISchedulerClient")
+  tail <- .jnew(J("org.ow2.parconnector.log.TaskLogTail"), jclient, paresult@job.id, .jarray(paresult@task.names))
+  tryCatch(tail$listen(), Exception = function(e) PAHandler(e))
+  on.exit(tail$close())
+  start <- proc.time()[["elapsed"]]
+  repeat {
+    # the state is read before the logs, so that the lines written before the end of the job are all read
+    finished <- !.isJobAlive(paresult@job.id, client)
+    repeat {
+      logs <- tryCatch(tail$read(as.integer(max.chars)), Exception = function(e) PAHandler(e))
+      for (i in which(logs != "")) {
+        callback(paresult@task.names[i], logs[i])
+      }
+      # more than max.chars characters were appended to a log, the rest is read without waiting
+      if (all(nchar(logs) < max.chars)) {
+        break
+      }
+    }
+    if (finished || (proc.time()[["elapsed"]] - start) * 1000 >= timeout) {
+      break
+    }
+    Sys.sleep(interval / 1000)
+  }
+  return(invisible(NULL))
+}
+
 setMethod("toString","PAJobResult",
           function(x, width = NULL, ...) {
             object <- x 
             output.list <- list()
             
             job.name = getName(object@job)
-            state <- object@client$getJobState(object@job.id)
+            if (object@job.id == "-1") {
+              # all the results were saved by a previous run, no job was submitted
+              return(str_c(job.name," (not submitted)","\n", str_c(object@task.names, " : Saved", "\n", collapse = "")))
+            }
+            local <- .localScheduler(object@client)
+            if (!is.null(local)) {
+              statuses <- local$getTaskStatuses(object@job.id, .jarray(object@task.names))
+              statuses[statuses == ""] <- "Saved"
+              output <- str_c(job.name," (id: ",object@job.id,") "," (status: ",local$getJobStatus(object@job.id),")","\n")
+              return(str_c(output, str_c(object@task.names, " : ", statuses, "\n", collapse = "")))
+            }
+            state <- .getJobState(object@job.id, object@client)
             task.states.list <- state$getTasks()
             output <- str_c(job.name," (id: ",object@job.id,") "," (status: ",state$getStatus()$toString(),")","\n")            
+            # the tasks whose result was saved by a previous run are not in the job
+            for (tname in object@task.names) {
+              output.list[[strtoi(str_sub(tname,2))]] <- str_c(tname, " : Saved")
+            }
             if (task.states.list$size() > 0) {              
               for (i in 0:(task.states.list$size()-1)) {
                 task.state <- task.states.list$get(as.integer(i))
@@ -235,7 +642,9 @@ setMethod("toString","PAJobResult",
                   
                 }
               }
-              for (i in 1:length(output.list)) {
+            }
+            for (i in seq_along(output.list)) {
+              if (!is.null(output.list[[i]])) {
                 output <- str_c(output,output.list[[i]],"\n")
               }
             }
@@ -77,11 +77,16 @@ print_task_data <- function(task.info)  {
 #' 
 #' \code{PAJobState} prints a formatted table diplaying the state of a ProActive job. 
 #' 
+#' The state is cached on the client : the state of a running job is fetched again after a delay which grows while the job does not progress
+#' (java properties \code{parconnector.jobstate.delay.min} and \code{parconnector.jobstate.delay.max}, 1 and 30 seconds by default),
+#' the state of a finished job is not fetched again.
+#' 
 #'  @param job.id id of the proactive job 
 #'  @param client connection handle to the scheduler, if not provided the handle created by the last call to \code{\link{PAConnect}} will be used
+#'  @param refresh TRUE to fetch the state from the scheduler instead of using the cached state
 #'  @seealso  \code{\link{PAState}}
 PAJobState <- function(job.id, 
-                       client =  PAClient()) {
+                       client =  PAClient(), refresh = FALSE) {
   
   if (client == NULL || is.jnull(client) ) {
     stop("You are not currently connected to the scheduler, use PAConnect")
@@ -90,7 +95,7 @@ PAJobState <- function(job.id,
   
   
   job.state <- j_try_catch ({
-    return (J(client,"getJobState", toString(job.id)));
+    return (.getJobState(job.id, client, refresh));
   })
   job.info <- job.state$getJobInfo()
   
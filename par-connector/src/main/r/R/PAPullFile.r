@@ -50,4 +50,44 @@ PAPullFile <- function(space, pathname, outputFile,
     ,.print.stack = .print.stack)
   }
   return (pulled)
-}
\ No newline at end of file
+}
+
+#' Transfer several files from a ProActive Data space to the local machine
+#' 
+#' \code{PAPullFiles} transfers several files existing in a data space to the local computer. The transfers run concurrently, the number of simultaneous transfers is
+#' controlled by the java property \code{parconnector.transfer.threads} (4 by default) and failed transfers are retried
+#' \code{parconnector.transfer.retries} times (3 by default).
+#' 
+#'  @param space name of the data space to transfer the files from 
+#'  @param pathnames locations of the files inside the remote data space
+#'  @param outputFiles local paths of the files where the files will be copied to, relative paths are resolved against the working directory
+#'  @param client connection handle to the scheduler, if not provided the handle created by the last call to \code{\link{PAConnect}} will be used
+#'  @return a logical vector telling for each file if it was transferred
+#'  @seealso  \code{\link{PAPullFile}} \code{\link{PAPushFiles}}
+#'  @examples
+#'  \dontrun{
+#'  PAPullFiles("USER",c("/out1.txt","/out2.txt"),c("out1.txt","out2.txt")) # will transfer files USER/out1.txt and USER/out2.txt to the working directory
+#'  }
+#' @export
+PAPullFiles <- function(space, pathnames, outputFiles, client = PAClient()) {
+  
+  if (client == NULL || is.jnull(client) ) {
+    stop("You are not currently connected to the scheduler, use PAConnect")
+  } 
+  if (length(pathnames) != length(outputFiles)) {
+    stop("pathnames and outputFiles must have the same length")
+  }
+  
+  # convert to absolute paths
+  outputFiles <- sapply(outputFiles, function(outputFile) {
+    jfile <- .jnew(J("java.io.File"),outputFile)
+    if (!jfile$isAbsolute()) {
+      outputFile <- file.path(getwd(),outputFile)
+    }
+    return(outputFile)
+  }, USE.NAMES = FALSE)
+  
+  transfers <- .getTransferManager(client)$pullAll(.getSpaceName(space), .jarray(as.character(pathnames)), 
+                                                   .jarray(as.character(outputFiles)))
+  return (.awaitTransfers(.jevalArray(transfers), "Pulling files"))
+}
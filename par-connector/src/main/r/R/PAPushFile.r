@@ -37,3 +37,45 @@ PAPushFile <- function(space, path, fileName, inputFile,
   },.print.stack = .print.stack)
   return (pushed)
 }
+
+#' Transfer several files from the local machine to a ProActive Data space
+#' 
+#' \code{PAPushFiles} copies several local files to a data space. The transfers run concurrently, the number of simultaneous transfers is
+#' controlled by the java property \code{parconnector.transfer.threads} (4 by default) and failed transfers are retried
+#' \code{parconnector.transfer.retries} times (3 by default).
+#' 
+#'  @param space name of the data space to transfer the files to 
+#'  @param path paths inside the remote data space where the files will be copied to, recycled to the number of files
+#'  @param fileNames names of the files that will be created in the remote data space
+#'  @param inputFiles local paths of the files, relative paths are resolved against the working directory
+#'  @param client connection handle to the scheduler, if not provided the handle created by the last call to \code{\link{PAConnect}} will be used
+#'  @return a logical vector telling for each file if it was transferred
+#'  @seealso  \code{\link{PAPushFile}} \code{\link{PAPullFiles}}
+#'  @examples
+#'  \dontrun{
+#'  PAPushFiles("USER","/",c("in1.txt","in2.txt"), c("in1.txt","in2.txt")) # will transfer local files in1.txt and in2.txt to the USER space
+#'  }
+#' @export
+PAPushFiles <- function(space, path, fileNames, inputFiles, client = PAClient()) {
+  
+  if (client == NULL || is.jnull(client) ) {
+    stop("You are not currently connected to the scheduler, use PAConnect")
+  } 
+  if (length(fileNames) != length(inputFiles)) {
+    stop("fileNames and inputFiles must have the same length")
+  }
+  path <- rep_len(path, length(fileNames))
+  
+  # convert to absolute paths
+  inputFiles <- sapply(inputFiles, function(inputFile) {
+    jfile <- .jnew(J("java.io.File"),inputFile)
+    if (!jfile$isAbsolute()) {
+      inputFile <- file.path(getwd(),inputFile)
+    }
+    return(inputFile)
+  }, USE.NAMES = FALSE)
+  
+  transfers <- .getTransferManager(client)$pushAll(.getSpaceName(space), .jarray(as.character(path)), 
+                                                   .jarray(as.character(fileNames)), .jarray(as.character(inputFiles)))
+  return (.awaitTransfers(.jevalArray(transfers), "Pushing files"))
+}
@@ -1,22 +1,41 @@
-.compute.task.dependencies <- function(task,envir) {
+# collects the task and the tasks it depends on in the visited environment, indexed by task name
+.compute.task.dependencies <- function(task,visited) {
   tname <- getName(task)
-  task.names <- get("task.names",envir)
-  all.tasks <- get("all.tasks",envir)
   
-  if (!is.element(tname,task.names)) {
-    task.names <- c(task.names,tname)
-    all.tasks <- c(all.tasks, task)
-    assign("task.names",task.names,envir)
-    assign("all.tasks",all.tasks,envir)
+  if (!exists(tname, envir = visited, inherits = FALSE)) {
+    assign(tname, task, envir = visited)
     deps <- getDependencies(task)
     if (length(deps) > 0) {
       for (ii in 1:length(deps)) {
-        .compute.task.dependencies(deps[[ii]],envir)
+        .compute.task.dependencies(deps[[ii]],visited)
       }
     }
   }
 }
 
+# set the codec used to compress the result of the tasks, by replacing the compression line of their scripts
+.setResultCompression <- function(tasks, compression) {
+  jtasks <- .jarray(lapply(tasks, getJavaObject), contents.class = "org/ow2/proactive/scheduler/common/task/Task")
+  J("org.ow2.parconnector.job.JobBuilder")$setScriptVariable(jtasks, .result.compression.var, compression)
+  return(invisible(NULL))
+}
+
+# set the size above which the results of the tasks are spilled by the R engine, the spill file of each task is
+# declared as an output file only when spilling is enabled
+.setResultSpill <- function(tasks, threshold) {
+  if (threshold <= 0) {
+    return(tasks)
+  }
+  jtasks <- .jarray(lapply(tasks, getJavaObject), contents.class = "org/ow2/proactive/scheduler/common/task/Task")
+  J("org.ow2.parconnector.job.JobBuilder")$setScriptVariable(jtasks, .result.spill.var, format(floor(threshold), scientific = FALSE))
+  return(lapply(tasks, function(task) {
+    # results above the threshold are saved in the task localspace, transfer them to the USER space
+    # where they will be pulled when the result is requested
+    addOutputFiles(task) <- PAFile(pathdest = str_c(.result.spill.dir, "/*/", getName(task), ".rds"), space = "USER")
+    return(task)
+  }))
+}
+
 #' Create and submit a ProActive R Job
 #' 
 #' \code{PASolve} take in parameter a list of PATasks produced by \code{\link{PA}} \code{\link{PAS}} or \code{\link{PAM}} calls and submits a new job to ProActive Scheduler. 
@@ -30,6 +49,15 @@
 #'  @param jobDescription description of this job
 #'  @param priority priority of this job
 #'  @param cancelOnError sets the cancelling mode mechanism whenever an error occurs in one tasks, does it cancel the whole job ? Default to TRUE
+#'  @param result.compression codec used to compress the serialized results of the tasks before they are sent back, one of "none", "gzip", "bzip2" or "xz". Default to "none".
+#'      Compression reduces the network and scheduler database traffic for large results, at the cost of CPU time on the nodes. Compressed results are decompressed transparently by \code{\link{PAWaitFor}} and \code{\link{PAWaitAny}}.
+#'  @param result.spill.threshold size in bytes above which the result of a task is saved by the node in the USER space instead of being sent back with the task result, 0 to disable spilling. Default to 0.
+#'      A spilled result is pulled only when it is requested by \code{\link{PAWaitFor}} or \code{\link{PAWaitAny}}, it does not go through the scheduler database.
+#'  @param chunk.size number of parameter sets evaluated by each ProActive Task when the simplified syntax is used, see \code{\link{PA}}. Default to 1.
+#'  @param speculative if TRUE, \code{\link{PAWaitFor}} duplicates the straggler tasks. Default to FALSE.
+#'      Once most tasks are finished, a task running much longer than the median duration of the finished tasks is copied to another host, the first copy to finish gives the result and the other one is killed.
+#'      Only the tasks without dependencies and without output files are copied, each copy runs in a separate job. The fraction of finished tasks and the factor of the median duration are given by the options
+#'      \code{PARConnector.speculation.finished} (0.75 by default) and \code{PARConnector.speculation.factor} (2 by default). The original task is not killed if the job cancels on error.
 #'  @return a \code{\link{PAJobResult}} object which acts as a placeholder for receiving actual results
 #'  @examples
 #'  \dontrun{
@@ -92,7 +120,7 @@
 #'  }
 #'  @seealso  \code{\link{PA}} \code{\link{PAS}} \code{\link{PAM}} \code{\link{PAJobResult}} \code{\link{PAConnect}}
 #' @export
-PASolve <- function(..., client = PAClient(), .debug = PADebug(), jobName = str_c("PARJob",.peekNewSolveId()) , jobDescription = "ProActive R Job", priority = "normal", cancelOnError = TRUE) {  
+PASolve <- function(..., client = PAClient(), .debug = PADebug(), jobName = str_c("PARJob",.peekNewSolveId()) , jobDescription = "ProActive R Job", priority = "normal", cancelOnError = TRUE, result.compression = "none", result.spill.threshold = 0, chunk.size = 1, speculative = FALSE) {  
   
   dots <- list(...)
   
@@ -105,10 +133,17 @@ PASolve <- function(..., client = PAClient(), .debug = PADebug(), jobName = str_
   } 
   
   
+  if (!is.element(result.compression, .result.compressions)) {
+    stop("Unknown result compression : ", result.compression, ", expected one of ", toString(.result.compressions))
+  }
+  if (!is.numeric(result.spill.threshold) || length(result.spill.threshold) != 1 || is.na(result.spill.threshold)) {
+    stop("Invalid result spill threshold : ", result.spill.threshold, ", expected a size in bytes")
+  }
+  
   cl <- class(dots[[1]])
   if ((cl == "function") || (cl == "character")) {
     # simplified syntax (a simple parametric sweep) => rebuild a new call
-    answer <- do.call("PASolve",list(do.call("PA",dots,envir=parent.frame())), envir=parent.frame())
+    answer <- do.call("PASolve",list(do.call("PA",c(dots, list(chunk.size = chunk.size)),envir=parent.frame()), result.compression = result.compression, result.spill.threshold = result.spill.threshold, speculative = speculative), envir=parent.frame())
     return (answer)
   }    
   
@@ -118,34 +153,46 @@ PASolve <- function(..., client = PAClient(), .debug = PADebug(), jobName = str_
   job <- PAJob(jobName, jobDescription)
   setPriority(job, priority)
   setCancelJobOnError(job, cancelOnError)
-  task.names <- NULL
-  all.tasks <- list()
+  visited <- new.env(hash = TRUE)
   
   for (i in 1:length(dots)) {
     tasklist <- dots[[i]]
     
     for (j in 1:length(tasklist)) {
-      .compute.task.dependencies(tasklist[[j]],environment())    
+      .compute.task.dependencies(tasklist[[j]],visited)    
     }
   }
   # sort tasks by their names
-  unordered <- unlist(lapply(task.names, function(x)strtoi(str_sub(x,2))))
-  new.indexes <- sort(unordered,index.return=TRUE)
-  task.names <- task.names[new.indexes[["ix"]]]
-  all.tasks <- all.tasks[new.indexes[["ix"]]]
+  task.names <- ls(visited, all.names = TRUE)
+  task.names <- task.names[order(strtoi(str_sub(task.names,2)))]
+  all.tasks <- mget(task.names, envir = visited)
   
-  for (i in 1:length(all.tasks)) {
-    addTask(job) <- all.tasks[[i]]
-  }
+  # the tasks created by PA from a result saved by a previous run have no script nor files, they are not submitted, see PAMemoize
+  saved <- Filter(function(task) .isMemoized(task) && length(task@inputfiles) == 0, all.tasks)
+  submitted <- all.tasks[setdiff(names(all.tasks), names(saved))]
   
-  if (.debug) {
-    print("Submitting job : ")
-    cat(toString(job))
+  job.id <- "-1"
+  if (length(submitted) > 0) {
+    .setResultCompression(submitted, result.compression)
+    submitted <- .setResultSpill(submitted, result.spill.threshold)
+    addTasks(job) <- submitted
+    
+    if (.debug) {
+      print("Submitting job : ")
+      cat(toString(job))
+    }
+    jobid <- j_try_catch(client$submit(getJavaObject(job)))
+    job.id <- jobid$value()
+    cat(str_c("Job submitted (id : ",job.id,")","\n"," with tasks : ",toString(names(submitted)),"\n"))
+  }
+  if (length(saved) > 0) {
+    # kept in the R job only, for the results to find the tasks
+    job@tasks <- c(job@tasks, saved)
+    cat(str_c("Saved results reused for tasks : ",toString(names(saved)),"\n"))
   }
-  jobid <- j_try_catch(client$submit(getJavaObject(job)))
-  cat(str_c("Job submitted (id : ",jobid$value(),")","\n"," with tasks : ",toString(task.names),"\n"))
   
-  jobresult <- PAJobResult(job, jobid$value(),  task.names, client)  
+  jobresult <- PAJobResult(job, job.id,  task.names, client, speculative)  
+  .putSavedResults(jobresult, saved)
   PALastResult(jobresult)
   return(jobresult)
 }, finally = {
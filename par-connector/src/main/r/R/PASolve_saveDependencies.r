@@ -80,6 +80,7 @@
 };
 
 .findName <- function(name, envir = NULL, .listpackages = NULL, newenvir, .do.verbose = FALSE) {
+  .recordLookup(name, envir)
   # first look for the object in the environment passed in parameter
   answerList <- NULL
   #   answerList <- tryCatch( {
@@ -160,11 +161,79 @@
   # print(str_c(file," saved"))
 };
 
+# the dependency analysis of a function is cached with the bindings it looked up,
+# it is reused as long as the function and these bindings are unchanged
+.dependency.cache.size <- 64
+
+.dependencyCache <- function() {
+  if (!exists(".dependency.cache", envir=cacheEnv)) {
+    assign(".dependency.cache", new.env(hash = TRUE), envir=cacheEnv)
+  }
+  return(get(".dependency.cache", envir=cacheEnv))
+}
+
+.lookupBinding <- function(name, envir) {
+  if (!exists(name, envir = envir)) {
+    return(NULL)
+  }
+  return(get(name, envir = envir))
+}
+
+# records the binding seen by an analysis in progress, the object is kept to detect its changes
+.recordLookup <- function(name, envir) {
+  if (!exists(".dependency.lookups", envir=cacheEnv)) {
+    return(invisible(NULL))
+  }
+  if (is.null(envir)) {
+    envir <- globalenv()
+  }
+  lookups <- get(".dependency.lookups", envir=cacheEnv)
+  key <- str_c(name, " ", format(envir))
+  if (!exists(key, envir=lookups, inherits=FALSE)) {
+    assign(key, list(name = name, envir = envir, object = .lookupBinding(name, envir)), envir=lookups)
+  }
+  return(invisible(NULL))
+}
+
+# identical() first compares the pointers, an unchanged binding is checked in constant time
+.validLookups <- function(lookups) {
+  for (lookup in lookups) {
+    if (!identical(.lookupBinding(lookup$name, lookup$envir), lookup$object)) {
+      return(FALSE)
+    }
+  }
+  return(TRUE)
+}
+
 .PASolve_computeDependencies <- function(funcOrFunName, envir = environment(), variableNames = NULL, newenvir = new.env(), .do.verbose=PADebug()) {
   if (typeof(funcOrFunName) == "character") {
     func <- get(funcOrFunName,envir)
     assign(funcOrFunName, func, envir = newenvir)
+  } else {
+    func <- funcOrFunName
+  }
+  use.cache <- getOption("PARConnector.dependency.cache", TRUE) && !exists(".dependency.lookups", envir=cacheEnv)
+  if (use.cache) {
+    name <- if (typeof(funcOrFunName) == "character") funcOrFunName else ""
+    key <- .objectDigest(list(name, deparse(func), variableNames))
+    cache <- .dependencyCache()
+    entry <- cache[[key]]
+    if (!is.null(entry) && identical(entry$envir, envir) && .validLookups(entry$lookups)) {
+      if (.do.verbose) {
+        print(str_c(" // dependencies found in cache : ", toString(entry$variableNames)))
+      }
+      return(list(variableNames = c(variableNames,entry$variableNames), newenvir = newenvir, libraryDependencies=entry$libraryDependencies))
+    }
+    lookups <- new.env(hash = TRUE)
+    assign(".dependency.lookups", lookups, envir=cacheEnv)
+    on.exit(rm(".dependency.lookups", envir=cacheEnv))
   }
   subpair <- .doSaveFunctionDependencies(funcOrFunName, envir = envir, newenvir = newenvir, .visitedNames = variableNames, .libraryDependencies={},.do.verbose=.do.verbose)
+  if (use.cache) {
+    if (length(ls(cache, all.names = TRUE)) >= .dependency.cache.size) {
+      rm(list = ls(cache, all.names = TRUE), envir = cache)
+    }
+    assign(key, list(envir = envir, lookups = as.list(lookups, all.names = TRUE), variableNames = subpair[[1]], libraryDependencies = subpair[[3]]), envir = cache)
+  }
   return(list(variableNames = c(variableNames,subpair[[1]]), newenvir = newenvir, libraryDependencies=subpair[[3]]))
 }
\ No newline at end of file
@@ -9,7 +9,10 @@ setClass(
      outputfiles = "list",
      scatter.index = "numeric",
      file.index = "numeric", 
-     file.index.function = "function"
+     file.index.function = "function",
+     memo.key = "character",
+     chunk.length = "numeric",
+     name = "character"
   ),
   prototype=prototype(
     javaObject = new(J("org.ow2.proactive.scheduler.common.task.ScriptTask")),
@@ -18,18 +21,25 @@ setClass(
     outputfiles = list(),
     scatter.index = 0,
     file.index = 0,
-    file.index.function = toString
+    file.index.function = toString,
+    memo.key = "",
+    chunk.length = 0,
+    name = ""
   )
 )
 
-PATask <- function(name, scatter.index = 0, file.index = 0, file.index.function = toString) {  
-  tsk <- new (Class="PATask", javaObject = new(J("org.ow2.proactive.scheduler.common.task.ScriptTask")), dependencies = list(), scatter.index = scatter.index, file.index = file.index, file.index.function = file.index.function)
-  setName(tsk,name)
+# the java task can be given when it was created with its name by JobBuilder
+PATask <- function(name, scatter.index = 0, file.index = 0, file.index.function = toString, javaObject = NULL) {  
+  if (is.null(javaObject)) {
+    javaObject <- new(J("org.ow2.proactive.scheduler.common.task.ScriptTask"))
+    javaObject$setName(name)
+  }
+  tsk <- new (Class="PATask", javaObject = javaObject, dependencies = list(), scatter.index = scatter.index, file.index = file.index, file.index.function = file.index.function, name = name)
   return (tsk)
 }
 
 PACloneTaskWithIndex <- function(task, scatter.index, file.index, file.index.function = toString) {  
-  tsk <- new (Class="PATask", javaObject = task@javaObject, dependencies = task@dependencies, inputfiles =  task@inputfiles, outputfiles = task@outputfiles, scatter.index = scatter.index, file.index = file.index, file.index.function = file.index.function)
+  tsk <- new (Class="PATask", javaObject = task@javaObject, dependencies = task@dependencies, inputfiles =  task@inputfiles, outputfiles = task@outputfiles, scatter.index = scatter.index, file.index = file.index, file.index.function = file.index.function, memo.key = task@memo.key, chunk.length = task@chunk.length, name = task@name)
   return (tsk)
 }
 
@@ -41,15 +51,22 @@ setMethod("getJavaObject", "PATask",
           } 
 )
 
+# the name is kept on the R side to avoid a java call
 setMethod("getName", "PATask",
           function(object) {
+            if (object@name != "") {
+              return(object@name)
+            }
             return(object@javaObject$getName())                          
           } 
 )
 
+# the name is also kept in the object, which is returned as it is not modified in place
 setMethod("setName", "PATask",
           function(object,value) {
-            return(object@javaObject$setName(value))                          
+            object@javaObject$setName(value)
+            object@name <- value
+            return(object)
           } 
 )
 
@@ -72,9 +89,9 @@ setMethod("setScript", "PATask",
 setMethod("getQuoteExp", "PATask",
           function(object) {
             if (object@scatter.index == 0) {
-              return(bquote(unserialize(results[[.(getName(object))]])))
+              return(bquote(.unserializeResult(results[[.(getName(object))]])))
             } else {
-              return(bquote(unserialize(results[[.(getName(object))]])[[.(object@scatter.index)]]))
+              return(bquote(.unserializeResult(results[[.(getName(object))]])[[.(object@scatter.index)]]))
             }
           } 
 )
@@ -130,6 +147,10 @@ setReplaceMethod("addOutputFiles" ,"PATask" ,
 
 setMethod("addSelectionScript" ,"PATask" ,
                  function(object,value,engine,is.dynamic) {          
+                   # the nodes cache the results of the static R selection scripts
+                   if (!is.dynamic && is.element(engine, c("R", "r", "parscript"))) {
+                     value <- J("org.ow2.parscript.PARScriptEngine")$staticSelectionScript(value)
+                   }
                    sscript = new(J("org.ow2.proactive.scripting.SelectionScript"),value,engine,is.dynamic)
                    jo = object@javaObject    
                    jo$addSelectionScript(sscript)              
@@ -56,6 +56,11 @@ setGeneric(
   def=function(object,value) {standardGeneric("addTask<-" )}  
 )
 
+setGeneric(
+  name="addTasks<-",
+  def=function(object,value) {standardGeneric("addTasks<-" )}  
+)
+
 
 ### PATask
 
@@ -242,6 +247,43 @@ setGeneric(
 
 cacheEnv <- new.env()
 
+# directory used by the R engine to save results above its spill threshold
+.result.spill.dir <- ".parresults"
+# variable holding the spill threshold in the task scripts, 0 disables spilling, see PASolve
+.result.spill.var <- ".pa.result.spill.threshold"
+
+# directory of the USER space holding the files named after their content, see PA
+.content.store.dir <- ".parcontent"
+
+# codecs available to compress task results, see PASolve
+.result.compressions <- c("none", "gzip", "bzip2", "xz")
+# variable holding the codec in the task scripts
+.result.compression.var <- ".pa.result.compression"
+
+# compress a serialized result, the compressed result starts with the header "PARZ" followed by the codec index
+# the function is copied in the task scripts, it must not use other functions of the package
+.compressResult <- function(obj, compression) {
+  codec <- match(compression, c("gzip", "bzip2", "xz"))
+  if (is.na(codec) || !is.raw(obj)) {
+    return(obj)
+  }
+  return(c(charToRaw("PARZ"), as.raw(codec), memCompress(obj, compression)))
+}
+
+# unserialize a result, compressed or not
+# the function is copied in the task scripts, it must not use other functions of the package
+.unserializeResult <- function(obj) {
+  if (is.raw(obj) && length(obj) > 5 && identical(obj[1:4], charToRaw("PARZ"))) {
+    obj <- memDecompress(obj[-(1:5)], c("gzip", "bzip2", "xz")[as.integer(obj[5])])
+  }
+  return(unserialize(obj))
+}
+
+# R code defining the function name in a task script
+.inlineFunction <- function(name) {
+  return(str_c(name, " <- ", str_c(deparse(get(name)), collapse = "\n"), "\n"))
+}
+
 PAClient <- function(client = NULL) {
   if (exists(".scheduler.client", envir=cacheEnv)){
     .scheduler.client <- get(".scheduler.client", envir=cacheEnv)
@@ -255,6 +297,177 @@ PAClient <- function(client = NULL) {
   return(.scheduler.client)
 }
 
+# transfer managers running the pushes and pulls on a thread pool, one per client
+.getTransferManager <- function(client = PAClient()) {
+  if (!exists("transfer.managers", envir=cacheEnv)) {
+    assign("transfer.managers", list(), envir=cacheEnv)
+  }
+  managers <- get("transfer.managers", envir=cacheEnv)
+  for (entry in managers) {
+    if (.jequals(entry$client, client)) {
+      return(entry$manager)
+    }
+  }
+  jclient <- .jcast(client, "org.ow2.proactive.scheduler.rest.ISchedulerClient")
+  manager <- .jnew(J("org.ow2.parconnector.transfer.FileTransferManager"), jclient)
+  assign("transfer.managers", c(managers, list(list(client = client, manager = manager))), envir=cacheEnv)
+  return(manager)
+}
+
+.resetTransferManager <- function() {
+  if (exists("transfer.managers", envir=cacheEnv)) {
+    for (entry in get("transfer.managers", envir=cacheEnv)) {
+      entry$manager$shutdown()
+    }
+    remove("transfer.managers", envir=cacheEnv)
+  }
+}
+
+# job states cached on the client, a job state is fetched again only when it may be outdated, one cache per client
+.getJobStateCache <- function(client = PAClient()) {
+  if (!exists("job.state.caches", envir=cacheEnv)) {
+    assign("job.state.caches", list(), envir=cacheEnv)
+  }
+  caches <- get("job.state.caches", envir=cacheEnv)
+  for (entry in caches) {
+    if (.jequals(entry$client, client)) {
+      return(entry$cache)
+    }
+  }
+  jclient <- .jcast(client, "org.ow2.proactive.scheduler.rest.ISchedulerClient")
+  cache <- .jnew(J("org.ow2.parconnector.state.JobStateCache"), jclient)
+  assign("job.state.caches", c(caches, list(list(client = client, cache = cache))), envir=cacheEnv)
+  return(cache)
+}
+
+.resetJobStateCache <- function() {
+  if (exists("job.state.caches", envir=cacheEnv)) {
+    remove("job.state.caches", envir=cacheEnv)
+  }
+}
+
+.getJobState <- function(job.id, client = PAClient(), refresh = FALSE) {
+  if (refresh) {
+    return(.getJobStateCache(client)$refresh(toString(job.id)))
+  }
+  return(.getJobStateCache(client)$getJobState(toString(job.id)))
+}
+
+# the local scheduler running the jobs of the client, NULL for a client of a scheduler, see PAConnectLocal
+.localScheduler <- function(client = PAClient()) {
+  if (is.null(client) || is.jnull(client)) {
+    return(NULL)
+  }
+  scheduler <- J("org.ow2.parconnector.local.LocalScheduler")$of(client)
+  if (is.jnull(scheduler)) {
+    return(NULL)
+  }
+  return(scheduler)
+}
+
+# the local scheduler does not provide job states, it gives the status of the job directly
+.isJobAlive <- function(job.id, client = PAClient()) {
+  local <- .localScheduler(client)
+  if (!is.null(local)) {
+    return(local$isJobAlive(toString(job.id)))
+  }
+  return(.getJobState(job.id, client)$getJobInfo()$getStatus()$isJobAlive())
+}
+
+# to be called when the job is known to have progressed, e.g. when task results are received
+.invalidateJobState <- function(job.id, client = PAClient()) {
+  if (exists("job.state.caches", envir=cacheEnv)) {
+    for (entry in get("job.state.caches", envir=cacheEnv)) {
+      if (.jequals(entry$client, client)) {
+        entry$cache$invalidate(toString(job.id))
+      }
+    }
+  }
+}
+
+# while a transfer batch is open, pushFile and pullFile submit the transfers to the transfer manager
+# instead of waiting for them, .endTransferBatch waits for all the submitted transfers
+.beginTransferBatch <- function() {
+  if (.isTransferBatch()) {
+    return(FALSE)
+  }
+  # the submitted transfers are stored in a list grown by doubling its size
+  batch <- new.env()
+  batch$transfers <- vector("list", 16)
+  batch$size <- 0
+  # the pushes waiting to be recorded in the manifest, by remote location
+  batch$pushes <- new.env(hash = TRUE)
+  assign("transfer.batch", batch, envir=cacheEnv)
+  return(TRUE)
+}
+
+.isTransferBatch <- function() {
+  return(exists("transfer.batch", envir=cacheEnv))
+}
+
+.addToTransferBatch <- function(transfer, remote = NULL, digest = NULL) {
+  batch <- get("transfer.batch", envir=cacheEnv)
+  if (batch$size == length(batch$transfers)) {
+    length(batch$transfers) <- 2 * length(batch$transfers)
+  }
+  batch$size <- batch$size + 1
+  batch$transfers[[batch$size]] <- transfer
+  if (!is.null(remote)) {
+    assign(remote, list(digest = digest, transfer = transfer), envir = batch$pushes)
+  }
+}
+
+# with warn.failures, the failed transfers are reported instead of raising an error
+.endTransferBatch <- function(label = "Transferring files", warn.failures = FALSE) {
+  if (!.isTransferBatch()) {
+    return(invisible(NULL))
+  }
+  batch <- get("transfer.batch", envir=cacheEnv)
+  transfers <- batch$transfers[seq_len(batch$size)]
+  remove("transfer.batch", envir=cacheEnv)
+  tryCatch(.awaitTransfers(transfers, label), error = function(e) {
+    if (!warn.failures) {
+      stop(e)
+    }
+    for (transfer in transfers) {
+      if (!transfer$isSuccessful()) {
+        print(str_c("Warning, error occurred when trying to transfer ", transfer$getDescription()))
+      }
+    }
+  }, finally = {
+    # only the successful pushes are recorded, the failed ones are pushed again next time
+    for (remote in ls(batch$pushes, all.names = TRUE)) {
+      push <- batch$pushes[[remote]]
+      if (push$transfer$isSuccessful()) {
+        .setPushed(remote, push$digest)
+      }
+    }
+  })
+}
+
+# waits for the transfers, with a progress bar if there are several of them
+.awaitTransfers <- function(transfers, label = "Transferring files") {
+  if (length(transfers) == 0) {
+    return(logical(0))
+  }
+  jtransfers <- .jarray(transfers, contents.class = "org/ow2/parconnector/transfer/FileTransfer")
+  FileTransferManager <- J("org.ow2.parconnector.transfer.FileTransferManager")
+  if (length(transfers) > 1) {
+    cat(label, "\n")
+    pb <- txtProgressBar(min = 0, max = length(transfers), style = 3)
+    repeat {
+      done <- FileTransferManager$countDone(jtransfers)
+      setTxtProgressBar(pb, done)
+      if (done >= length(transfers)) {
+        break
+      }
+      Sys.sleep(0.1)
+    }
+    close(pb)
+  }
+  return(j_try_catch(FileTransferManager$await(jtransfers)))
+}
+
 #' sets PARConnector Debug mode
 #'
 #' PADebug can be used either to set the Debug mode to on/off or to know the current state of the debug mode.
@@ -278,6 +491,79 @@ PADebug <- function(debug=FALSE) {
   return(.is.debug)
 }
 
+#' sets PARConnector memoization mode
+#'
+#' When memoization is on, each task created by \code{\link{PA}}, \code{\link{PAS}} or \code{\link{PAM}} gets a key which is a digest of its function and of the values it captures, of the saved dependencies,
+#' of its arguments, of its input files content and of the keys of the tasks it depends on. The results received by \code{\link{PAWaitFor}} are saved locally under this key.
+#' 
+#' When the same task is created again, its saved result is used : the tasks depending on it receive the result directly and do not depend on it anymore,
+#' so that \code{\link{PASolve}} only submits the tasks whose inputs changed. A reused task given directly to \code{\link{PASolve}} is not submitted, its saved result is available right away.
+#' 
+#' Tasks producing output files are never memoized.
+#' 
+#' @param memoize to set the memoization mode to on (TRUE) or off (FALSE)
+#' @param dir local directory where the results are saved, by default a .parconnector/memo directory in the home directory
+#' @return the current or new state of the memoization mode
+#' @export
+PAMemoize <- function(memoize=FALSE, dir=NULL) {
+  if (exists(".is.memoize", envir=cacheEnv)){
+    .is.memoize <- get(".is.memoize", envir=cacheEnv)
+  } else {
+    .is.memoize <- FALSE
+  }
+  
+  if (!missing(memoize)) {
+    .is.memoize <- memoize        
+  }
+  if (!is.null(dir)) {
+    assign(".memo.dir", dir, envir=cacheEnv)
+  }
+  assign(".is.memoize", .is.memoize, envir=cacheEnv)
+  return(.is.memoize)
+}
+
+.memoDir <- function() {
+  if (exists(".memo.dir", envir=cacheEnv)) {
+    return(get(".memo.dir", envir=cacheEnv))
+  }
+  return(file.path(path.expand("~"), ".parconnector", "memo"))
+}
+
+.memoFile <- function(key) {
+  return(file.path(.memoDir(), str_c(key, ".rds")))
+}
+
+.objectDigest <- function(obj) {
+  tmp <- tempfile()
+  on.exit(unlink(tmp))
+  writeBin(serialize(obj, NULL, version = 2), tmp)
+  return(unname(tools::md5sum(tmp)))
+}
+
+.isMemoized <- function(task) {
+  return(task@memo.key != "" && file.exists(.memoFile(task@memo.key)))
+}
+
+# the saved result of a task, or of its part given to a dependent task if the task is a split task
+.memoizedValue <- function(task) {
+  value <- readRDS(.memoFile(task@memo.key))
+  if (task@scatter.index == 0) {
+    return(value)
+  }
+  return(value[[task@scatter.index]])
+}
+
+.saveMemoizedValue <- function(task, value) {
+  if (task@memo.key == "" || file.exists(.memoFile(task@memo.key))) {
+    return(invisible(FALSE))
+  }
+  dir.create(.memoDir(), recursive = TRUE, showWarnings = FALSE)
+  # written under another name first so that a concurrent session never reads a partial file
+  tmp <- tempfile(tmpdir = .memoDir(), fileext = ".tmp")
+  saveRDS(value, tmp)
+  return(invisible(file.rename(tmp, .memoFile(task@memo.key))))
+}
+
 PAHandler <- function(e, .print.stack=TRUE) {    
   if (.print.stack || PADebug()) {
     if (PADebug()) {
@@ -336,7 +622,8 @@ PALastResult <- function(res = NULL) {
   id <- id + 1
   assign("patask.id", id, envir=cacheEnv)
   
-  return(str_c("t",id))
+  # as an integer, a double is formatted as t1e+05
+  return(str_c("t",as.integer(id)))
 }
 
 
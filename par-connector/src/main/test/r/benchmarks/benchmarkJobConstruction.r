@@ -0,0 +1,38 @@
+# Measures the time needed by the R client to build and submit large jobs.
+#
+# The scheduler is replaced by the stub client of the par-client test classes, so that only the
+# client side is measured : build them first with "gradle :par-client:testClasses", or give their
+# location with the PARCLIENT_TEST_CLASSES environment variable.
+#
+# Usage : Rscript benchmarkJobConstruction.r [sizes...]   (default 1000 10000 100000)
+
+library("PARConnector")
+
+test.classes <- Sys.getenv("PARCLIENT_TEST_CLASSES", 
+                           file.path("..", "..", "..", "..", "..", "..", "par-client", "build", "classes", "test"))
+.jaddClassPath(normalizePath(test.classes))
+
+sizes <- as.integer(commandArgs(TRUE))
+if (length(sizes) == 0) {
+  sizes <- c(1000L, 10000L, 100000L)
+}
+
+client <- J("org.ow2.parconnector.StubSchedulerClient")$create()
+PAClient(client)
+PADebug(FALSE)
+
+timings <- data.frame(tasks = integer(0), build = numeric(0), submit = numeric(0))
+for (n in sizes) {
+  gc()
+  build <- system.time(tasks <- PA("identity", 1:n, client = client))[["elapsed"]]
+  submit <- system.time(capture.output(PASolve(tasks, client = client)))[["elapsed"]]
+  timings[nrow(timings) + 1, ] <- list(n, build, submit)
+  rm(tasks)
+}
+
+timings$per.task.ms <- 1000 * (timings$build + timings$submit) / timings$tasks
+print(timings, row.names = FALSE)
+
+# with a linear construction, the time per task does not grow with the size of the job
+growth <- timings$per.task.ms[nrow(timings)] / timings$per.task.ms[1]
+cat("Time per task growth between", timings$tasks[1], "and", timings$tasks[nrow(timings)], "tasks :", format(growth, digits = 3), "\n")
@@ -0,0 +1,42 @@
+source("./utils.r")
+
+connectForTests()
+
+n <- 10
+
+# one result per parameter set, with a last chunk smaller than the others
+
+res <- PASolve('sin', 1:n, chunk.size = 3)
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (length(res@task.names) != 4) {
+  msg <- paste0("Error, expected 4 tasks, received ", length(res@task.names), "\n")
+  stop(msg)
+}
+if (length(val) != n || !all(unlist(val) == sin(1:n))) {
+  msg <- paste0("Error when comparing val=",toString(unlist(val)), " with sin(1:n)=",toString(sin(1:n)) ,"\n")
+  stop(msg) 
+}
+
+# chunked tasks given as parameters of a merge task
+
+res <- PASolve(PAM("sum", PA(function(x) {x*x}, 1:n, chunk.size = 4)))
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (val[[length(val)]] != sum((1:n)^2)) {
+  msg <- paste0("Error when comparing val=", toString(val[[length(val)]]), " with sum((1:n)^2)=", sum((1:n)^2), "\n")
+  stop(msg)
+}
+
+# automatic chunk size
+
+options(PARConnector.nodes = 1)
+res <- PASolve('cos', 1:n, chunk.size = "auto")
+val <- PAWaitFor(res, TEN_MINUTES)
+
+if (length(val) != n || !all(unlist(val) == cos(1:n))) {
+  msg <- paste0("Error when comparing val=",toString(unlist(val)), " with cos(1:n)=",toString(cos(1:n)) ,"\n")
+  stop(msg) 
+}
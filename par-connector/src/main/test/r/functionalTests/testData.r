@@ -0,0 +1,54 @@
+source("./utils.r")
+
+connectForTests()
+
+n <- 4
+
+# the matrix is uploaded once and read by the nodes instead of being copied in each task
+
+m <- matrix(1:10000, ncol = 100)
+h <- PAData(m)
+
+res <- PASolve(function(m, i) sum(m[, i]), h, 1:n)
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (!all(unlist(val) == colSums(m)[1:n])) {
+  msg <- paste0("Error when comparing val=", toString(unlist(val)), " with colSums(m)[1:n]=", toString(colSums(m)[1:n]), "\n")
+  stop(msg)
+}
+
+# the data is kept in the R session of the nodes
+
+res <- PASolve(function(m, file) exists(".pa.data.cache", envir = globalenv()) && !is.null(get(".pa.data.cache", envir = globalenv())[[file]]), h, rep(h@file, n))
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (!all(unlist(val))) {
+  stop("Error, the data must be cached by the nodes\n")
+}
+
+# handles can be given to dependent tasks
+
+res <- PASolve(PAM("sum", PA(function(m, i) sum(m[, i]), h, PAS("identity", 1:n))))
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (val[[length(val)]] != sum(m[, 1:n])) {
+  msg <- paste0("Error when comparing val=", toString(val[[length(val)]]), " with sum(m[, 1:n])=", sum(m[, 1:n]), "\n")
+  stop(msg)
+}
+
+# the nodes which cannot read the space directly read the file transferred with the inputs of the task
+
+m2 <- m * 2
+h2 <- PAData(m2)
+# the handle is resolved lazily, once the user space is hidden from the task
+res <- PASolve(function(m, i) { rm("userspace", envir = globalenv()); sum(m[, i]) }, h2, 1:n)
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (!all(unlist(val) == colSums(m2)[1:n])) {
+  msg <- paste0("Error when comparing val=", toString(unlist(val)), " with colSums(m2)[1:n]=", toString(colSums(m2)[1:n]), "\n")
+  stop(msg)
+}
@@ -32,3 +32,27 @@ if (!all(unlist(val) == 1:3)) {
   msg <- paste0("Error when comparing val=",toString(unlist(val)), " with foo(1:3)=",toString(1:3),"\n")
   stop(msg) 
 }
+
+# the analysis of bar is cached, changing one of its dependencies must be seen by the next call
+
+a <- 2
+
+res <- PASolve(bar, 1:3)
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (!all(unlist(val) == 2*(1:3))) {
+  msg <- paste0("Error when comparing val=",toString(unlist(val)), " with foo(1:3)=",toString(2*(1:3)),"\n")
+  stop(msg) 
+}
+
+foo <- function(x) x+a
+
+res <- PASolve(bar, 1:3)
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (!all(unlist(val) == (1:3)+2)) {
+  msg <- paste0("Error when comparing val=",toString(unlist(val)), " with foo(1:3)=",toString((1:3)+2),"\n")
+  stop(msg) 
+}
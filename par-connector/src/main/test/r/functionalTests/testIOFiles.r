@@ -45,3 +45,42 @@ for (i in 1:n) {
     q(status=1)
   }
 }
+
+# testing the output files transferred by the result iterator
+createFiles("in_", n)
+removeFiles("out_", n)
+
+res <- PASolve(copyfile, 1:n, input.files="in_%1%", output.files="out_%1%")
+it <- PAResultIterator(res)
+while (PAHasNextResult(it)) {
+  v <- PANextResult(it, TEN_MINUTES)
+  tn <- names(v)
+  filename <- paste0("out_",substr(tn,2,nchar(tn)))
+  if(!file.exists( filename )) {  
+    cat("Can't find file ", filename)
+    q(status=1)
+  }
+}
+
+# the input files with the same content are uploaded once to the content store and copied by each task
+createFiles("in_", n)
+removeFiles("out_", n)
+
+tasks <- PA(copyfile, 1:n, input.files="in_%1%", output.files="out_%1%")
+stored <- unique(sapply(tasks, function(t) t@inputfiles[[length(t@inputfiles)]]@pathdest))
+if (length(stored) != 1) {
+  cat("Expected a single file in the content store, found ", toString(stored))
+  q(status=1)
+}
+
+res <- PASolve(tasks)
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+for (i in 1:n) {
+  filename <- paste0("out_",i)
+  if(!file.exists( filename )) {
+    cat("Can't find file ", filename)
+    q(status=1)
+  }
+}
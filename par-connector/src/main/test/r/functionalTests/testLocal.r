@@ -0,0 +1,63 @@
+source("./utils.r")
+
+# the jobs run on local R processes, without a scheduler
+PAConnectLocal(2)
+
+n <- 4
+
+# parametric sweep
+
+res <- PASolve("cos", 1:n)
+val <- PAWaitFor(res, TEN_MINUTES)
+if (!isTRUE(all.equal(unname(unlist(val)), cos(1:n)))) {
+  stop(paste0("Error, unexpected results : ", toString(unlist(val)), "\n"))
+}
+
+# the state of a local job is read as the state of a job of a scheduler
+
+PAJobState(res@job.id)
+if (length(PAGetResult(res@job.id)@task.names) != n) {
+  stop("Error, unexpected tasks in the state of the local job\n")
+}
+
+# split/merge workflow, the tasks run after the tasks they depend on
+
+res <- PASolve(PAM("sum", PA(function(x) {x*x}, PAS("identity", 1:n))))
+val <- PAWaitFor(res, TEN_MINUTES)
+if (val[[length(val)]] != sum((1:n)^2)) {
+  stop(paste0("Error, unexpected merge result : ", val[[length(val)]], "\n"))
+}
+
+# input and output files are transferred as with a scheduler
+
+copyfile <- function(index) {
+  file.copy(paste0("in_",index),paste0("out_",index), overwrite=TRUE)
+  return(TRUE)
+}
+
+.Last <- function() {
+  removeFiles("in_", n)
+  removeFiles("out_", n)
+}
+
+createFiles("in_", n)
+removeFiles("out_", n)
+
+res <- PASolve(copyfile, 1:n, input.files="in_%1%", output.files="out_%1%")
+val <- PAWaitFor(res, TEN_MINUTES)
+
+for (i in 1:n) {
+  filename <- paste0("out_",i)
+  if(!file.exists( filename )) {
+     cat("Can't find file ", filename)
+     q(status=1)
+  }
+}
+
+# the failure of a task is reported as with a scheduler
+
+res <- PASolve(function(x) stop("failure"), 1)
+val <- tryCatch(PAWaitFor(res, TEN_MINUTES), error = function(e) list(e))
+if (!inherits(val[[1]], "error")) {
+  stop("Error, the task failure was not returned\n")
+}
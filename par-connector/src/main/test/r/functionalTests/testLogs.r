@@ -0,0 +1,38 @@
+source("./utils.r")
+
+connectForTests()
+
+n <- 2
+
+logfunc <- function(x) {
+  for (i in 1:3) {
+    print(paste0("task ", x, " line ", i))
+    Sys.sleep(2)
+  }
+  return(x)
+}
+
+# the logs are followed while the tasks run, each callback receives only the new lines
+
+res <- PASolve(logfunc, 1:n)
+received <- new.env()
+PATailLogs(res, callback = function(tname, log) {
+  received[[tname]] <- paste0(if (is.null(received[[tname]])) "" else received[[tname]], log)
+}, interval = 1000, timeout = TEN_MINUTES)
+
+for (tname in res@task.names) {
+  if (!grepl("line 3", received[[tname]])) {
+    stop(paste0("Error, the log of ", tname, " was not followed : ", received[[tname]], "\n"))
+  }
+}
+
+# reading from the returned offset gives the rest of the log
+
+tname <- res@task.names[1]
+first <- PATaskLog(res, tname, max.chars = 10)
+rest <- PATaskLog(res, tname, offset = first$offset)
+if (paste0(first$log, rest$log) != PATaskLog(res, tname)$log) {
+  stop("Error, the log read from the offset does not match the whole log\n")
+}
+
+val <- PAWaitFor(res, TEN_MINUTES)
@@ -0,0 +1,62 @@
+source("./utils.r")
+
+connectForTests()
+
+n <- 4
+
+memo.dir <- file.path(tempdir(), "memo")
+PAMemoize(TRUE, dir = memo.dir)
+
+.Last <- function() {
+  PAMemoize(FALSE)
+  unlink(memo.dir, recursive = TRUE)
+}
+
+square <- function(x) {x*x}
+
+res <- PASolve(PAM("sum", PA(square, PAS("identity", 1:n))))
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (val[[length(val)]] != sum((1:n)^2)) {
+  msg <- paste0("Error when comparing val=", toString(val[[length(val)]]), " with sum((1:n)^2)=", sum((1:n)^2), "\n")
+  stop(msg)
+}
+
+# only the merge changed, the split and the squares must not be submitted again
+
+res <- PASolve(PAM("prod", PA(square, PAS("identity", 1:n))))
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (length(val) != 1) {
+  msg <- paste0("Error, expected only the merge task to be submitted, received ", length(val), " results\n")
+  stop(msg)
+}
+if (val[[1]] != prod((1:n)^2)) {
+  msg <- paste0("Error when comparing val=", toString(val[[1]]), " with prod((1:n)^2)=", prod((1:n)^2), "\n")
+  stop(msg)
+}
+
+# an unchanged pipeline is resolved from the saved results
+
+res <- PASolve(PAM("prod", PA(square, PAS("identity", 1:n))))
+print(res)
+val <- PAWaitFor(res, TEN_MINUTES)
+
+if (length(val) != 1 || val[[1]] != prod((1:n)^2)) {
+  stop("Error, the saved result of the merge task was not reused\n")
+}
+
+# a closure capturing another value is another computation
+
+scale <- function(k) {function(x) {k*x}}
+
+val <- PAWaitFor(PASolve(PA(scale(2), 1:n)), TEN_MINUTES)
+val <- PAWaitFor(PASolve(PA(scale(3), 1:n)), TEN_MINUTES)
+print(val)
+
+if (!identical(as.numeric(unlist(val)), 3 * (1:n))) {
+  msg <- paste0("Error, the saved results of another closure were reused, val=", toString(unlist(val)), "\n")
+  stop(msg)
+}
@@ -0,0 +1,28 @@
+source("./utils.r")
+
+connectForTests()
+
+n <- 4
+
+# each codec must give back the uncompressed results
+
+for (compression in c("none", "gzip", "bzip2", "xz")) {
+  res <- PASolve('rep', 1:n, 1000, result.compression = compression)
+  val <- PAWaitFor(res, TEN_MINUTES)
+
+  if (!identical(unname(val), mapply(rep, 1:n, 1000, SIMPLIFY = FALSE))) {
+    msg <- paste0("Error when comparing results compressed with ", compression, "\n")
+    stop(msg)
+  }
+}
+
+# compressed results given as parameters of dependent tasks
+
+res <- PASolve(PAM("sum", PA(function(x) {x*x}, PAS("identity", 1:n))), result.compression = "gzip")
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (val[[length(val)]] != sum((1:n)^2)) {
+  msg <- paste0("Error when comparing val=", toString(val[[length(val)]]), " with sum((1:n)^2)=", sum((1:n)^2), "\n")
+  stop(msg)
+}
@@ -0,0 +1,35 @@
+source("./utils.r")
+
+connectForTests()
+
+n <- 8
+
+# the last task is much slower than the others, it is copied once the others are finished
+slowfunc <- function(x) {
+  if (x == n) {
+    Sys.sleep(60)
+  } else {
+    Sys.sleep(2)
+  }
+  return(x * 2)
+}
+
+res <- PASolve(slowfunc, 1:n, speculative = TRUE)
+val <- PAWaitFor(res, TEN_MINUTES)
+
+if (!identical(unname(unlist(val)), (1:n) * 2)) {
+  stop(paste0("Error, unexpected results : ", toString(unlist(val)), "\n"))
+}
+
+# the copy of the slow task is forgotten once the task has a result
+if (length(ls(res@copies)) > 0) {
+  stop(paste0("Error, copies are still recorded : ", toString(ls(res@copies)), "\n"))
+}
+
+# without the speculative mode nothing is copied
+
+res <- PASolve(function(x) x * 2, 1:n)
+val <- PAWaitFor(res, TEN_MINUTES)
+if (!identical(unname(unlist(val)), (1:n) * 2)) {
+  stop(paste0("Error, unexpected results : ", toString(unlist(val)), "\n"))
+}
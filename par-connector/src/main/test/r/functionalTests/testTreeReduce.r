@@ -0,0 +1,41 @@
+source("./utils.r")
+
+connectForTests()
+
+n <- 10
+
+# 10 squares merged by 3 tasks, merged by a final task
+
+res <- PASolve(PAMTree("sum", PA(function(x) {x*x}, 1:n), fan.in = 4))
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (val[[length(val)]] != sum((1:n)^2)) {
+  msg <- paste0("Error when comparing val=", toString(val[[length(val)]]), " with sum((1:n)^2)=", sum((1:n)^2), "\n")
+  stop(msg)
+}
+
+if (length(val) != n + 3 + 1) {
+  msg <- paste0("Error, expected ", n + 3 + 1, " tasks, received ", length(val), " results\n")
+  stop(msg)
+}
+
+# the order of the results is kept
+
+res <- PASolve(PAMTree("c", PA("identity", 1:n), fan.in = 2))
+val <- PAWaitFor(res, TEN_MINUTES)
+print(val)
+
+if (!identical(val[[length(val)]], 1:n)) {
+  msg <- paste0("Error when comparing val=", toString(val[[length(val)]]), " with 1:n=", toString(1:n), "\n")
+  stop(msg)
+}
+
+# the dependencies saved for the squares are not copied to the merge tasks
+
+k <- 2
+tree <- PAMTree("sum", PA(function(x) {x*k}, 1:n), fan.in = 4)
+if (length(tree[[1]]@inputfiles) != 1) {
+  msg <- paste0("Error, expected only the environment file as input of the final merge task, received ", length(tree[[1]]@inputfiles), " files\n")
+  stop(msg)
+}
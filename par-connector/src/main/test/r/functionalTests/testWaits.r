@@ -59,3 +59,45 @@ if (!all(unlist(val) == sin(1:n))) {
   stop(msg)  
 }
 
+
+# test PAResultIterator
+n <- 4
+res <- PASolve('sin',1:n)
+it <- PAResultIterator(res)
+val <- list()
+while (PAHasNextResult(it)) {
+  v <- PANextResult(it, TEN_MINUTES)
+  tn <- names(v)
+  ind <- strtoi(substr(tn,2,nchar(tn)))
+  val[ind] <- v
+}
+
+print(val)
+if (!all(unlist(val) == sin(1:n))) {
+  msg <- paste0("Error when comparing val=",toString(unlist(val)), " with sin(1:n)=", toString(sin(1:n)) ,"\n" )
+  stop(msg)  
+}
+
+# a chunk task gives one result per element
+res <- PASolve('sin',1:n, chunk.size = 2)
+it <- PAResultIterator(res)
+val <- list()
+while (PAHasNextResult(it)) {
+  val <- c(val, PANextResult(it, TEN_MINUTES))
+}
+
+print(val)
+if (length(val) != n || !all(unlist(val[order(names(val))]) == sin(1:n))) {
+  msg <- paste0("Error when comparing val=",toString(unlist(val)), " with sin(1:n)=", toString(sin(1:n)) ,"\n" )
+  stop(msg)  
+}
+
+# test PAForEachResult
+res <- PASolve('sin',1:n)
+val <- PAForEachResult(res, function(v, tn) v * 2)
+
+print(val)
+if (length(val) != n || !all(unlist(val[sort(names(val))]) == 2 * sin(1:n))) {
+  msg <- paste0("Error when comparing val=",toString(unlist(val)), " with 2 * sin(1:n)=", toString(2 * sin(1:n)) ,"\n" )
+  stop(msg)  
+}
@@ -10,9 +10,17 @@ import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.script.AbstractScriptEngine;
 import javax.script.Bindings;
@@ -27,9 +35,12 @@ import org.ow2.proactive.scheduler.common.task.TaskResult;
 import org.ow2.proactive.scripting.Script;
 import org.ow2.proactive.scripting.SelectionScript;
 import org.ow2.proactive.scripting.TaskScript;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.io.CharStreams;
 import org.rosuda.REngine.JRI.JRIEngine;
 import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPLogical;
 import org.rosuda.REngine.REXPString;
 import org.rosuda.REngine.REngine;
 import org.rosuda.REngine.REngineCallbacks;
@@ -53,9 +64,59 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
     public static final String TASK_SCRIPT_VARIABLES = "variables";
     public static final String TASK_PROGRESS_MSG = "taskProgress";
     public static final String ERROR_TAG = "<PARError> ";
+    public static final String RESULT_SPILL_THRESHOLD_PROPERTY = "parscript.result.spill.threshold";
+    public static final String RESULT_SPILL_THRESHOLD_VARIABLE = ".pa.result.spill.threshold";
+    public static final String RESULT_SPILL_DIR = ".parresults";
+    public static final String RESULT_SPILL_EXTENSION = ".rds";
+    public static final String SELECTION_CACHE_TTL_PROPERTY = "parscript.selection.cache.ttl";
+    public static final String STATIC_SELECTION_TAG = "# <PARStaticSelection>";
+    public static final String RESULTS_TAG = "# <PARResults>";
+    public static final String JOB_ID_VARIABLE = "PA_JOB_ID";
+    public static final String TASK_NAME_VARIABLE = "PA_TASK_NAME";
+    private static final String SPILLED_RESULT_TMP_NAME = ".parscript.result";
+    private static final String VARIABLES_SNAPSHOT_NAME = ".parscript.variables";
+
+    private static final int MAX_CACHED_PATHS = 64;
+    private static final int MAX_CACHED_SELECTIONS = 256;
+
+    /**
+     * Accesses to a parent result by a literal name: results[['t1']], results[["t1"]],
+     * results$t1 or results$`t1`
+     */
+    private static final Pattern RESULT_ACCESS = Pattern.compile("(?<![\\w.])" +
+        TaskScript.RESULTS_VARIABLE + "\\s*(?:\\[\\[\\s*(['\"])((?:\\\\.|(?!\\1).)*)\\1\\s*\\]\\]|" +
+        "\\$\\s*([A-Za-z.][\\w.]*|`[^`]*`))");
+
+    /**
+     * Any other use of the 'results' variable
+     */
+    private static final Pattern RESULTS_USE = Pattern.compile("(?<![\\w.])" + TaskScript.RESULTS_VARIABLE +
+        "(?![\\w.])");
+
+    /**
+     * The parent results used by a script through expressions built at run time,
+     * e.g. by eval(), declared by a comment line: # &lt;PARResults&gt; t1,t2
+     */
+    private static final Pattern RESULTS_DECLARATION = Pattern.compile("^" + Pattern.quote(RESULTS_TAG) +
+        "(.*)$", Pattern.MULTILINE);
 
     private static PARScriptEngine instance;
 
+    /**
+     * Canonical paths of the dataspaces by real URI, canonicalization is slow on network
+     * filesystems and the shared spaces are the same for all tasks
+     */
+    private static final Cache<String, String> canonicalPaths = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_PATHS).build();
+
+    /**
+     * Results of the static selection scripts by script content and arguments, rebuilt
+     * when the TTL changes
+     */
+    private static Cache<String, CachedSelection> selectionResults;
+
+    private static long selectionResultsTTL;
+
     /**
      * The instance of factory that has created this engine
      */
@@ -76,6 +137,11 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
      */
     private AtomicInteger taskProgress;
 
+    /**
+     * The R variables of the dataspaces assigned for the current script
+     */
+    private final Set<String> assignedSpaces = new HashSet<String>();
+
     /**
      * Enabled if this engine is not running inside a forked node
      */
@@ -127,17 +193,32 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
             throw new ScriptException("No bindings specified in the script context");
         }
 
+        // Static selection scripts are not evaluated again before the cache expires
+        Cache<String, CachedSelection> selectionCache = selectionCache(Long.getLong(
+                SELECTION_CACHE_TTL_PROPERTY, -1L));
+        String selectionKey = null;
+        if (selectionCache != null && script.startsWith(STATIC_SELECTION_TAG)) {
+            selectionKey = selectionKey(script, (String[]) bindings.get(Script.ARGUMENTS_NAME));
+            CachedSelection cached = selectionCache.getIfPresent(selectionKey);
+            if (cached != null) {
+                bindings.put(SelectionScript.RESULT_VARIABLE, cached.selected);
+                return cached.result;
+            }
+            // a selection result left by a previous script must not be cached
+            this.removeSelectionResult(ctx);
+        }
+
         // Assign all script task related objects
         this.enableWarnings(ctx);
         this.customizeErrors(ctx);
         this.assignArguments(bindings, ctx);
         this.assignProgress(bindings, ctx);
-        this.assignResults(bindings, ctx);
+        this.assignResults(script, bindings, ctx);
         this.assignLocalSpace(bindings, ctx);
-        this.assignUserSpace(bindings, ctx);
-        this.assignGlobalSpace(bindings, ctx);
-        this.assignInputSpace(bindings, ctx);
-        this.assignOutputSpace(bindings, ctx);
+        this.assignSpace(bindings, DS_USER_BINDING_NAME, "userspace", ctx);
+        this.assignSpace(bindings, DS_GLOBAL_BINDING_NAME, "globalspace", ctx);
+        this.assignSpace(bindings, DS_INPUT_BINDING_NAME, "inputspace", ctx);
+        this.assignSpace(bindings, DS_OUTPUT_BINDING_NAME, "outputspace", ctx);
         Map<String, Serializable> jobVariables = this.assignVariables(bindings, ctx);
 
         try {
@@ -151,14 +232,20 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
             }
 
             try {
-                // If the 'result' variable is explicitly defined in the global
-                // environment it is considered as the task result instead of the
-                // result exp
-                REXP resultRexp = engine.get(TaskScript.RESULT_VARIABLE, null, true);
-                if (resultRexp != null) {
-                    resultValue = RexpConvert.rexp2jobj(resultRexp);
+                // Oversized results are written to the localspace and only a reference is returned
+                RResultReference spilledResult = this.spillResultIfOversized(rexp, bindings, jobVariables);
+                if (spilledResult != null) {
+                    resultValue = spilledResult;
                 } else {
-                    resultValue = RexpConvert.rexp2jobj(rexp);
+                    // If the 'result' variable is explicitly defined in the global
+                    // environment it is considered as the task result instead of the
+                    // result exp
+                    REXP resultRexp = engine.get(TaskScript.RESULT_VARIABLE, null, true);
+                    if (resultRexp != null) {
+                        resultValue = RexpConvert.rexp2jobj(resultRexp);
+                    } else {
+                        resultValue = RexpConvert.rexp2jobj(rexp);
+                    }
                 }
                 if (resultValue == null) {
                     resultValue = true; // TaskResult.getResult() returns true by default
@@ -168,7 +255,11 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
                 // in case the SelectionScript result is assigned in the engine, retrieve it
                 REXP ssResultRexp = engine.get(SelectionScript.RESULT_VARIABLE, null, true);
                 if (ssResultRexp != null) {
-                    bindings.put(SelectionScript.RESULT_VARIABLE, RexpConvert.rexp2jobj(ssResultRexp));
+                    Object selected = RexpConvert.rexp2jobj(ssResultRexp);
+                    bindings.put(SelectionScript.RESULT_VARIABLE, selected);
+                    if (selectionKey != null && toThrow == null) {
+                        selectionCache.put(selectionKey, new CachedSelection(resultValue, selected));
+                    }
                 }
 
                 this.updateJobVariables(jobVariables);
@@ -194,6 +285,9 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
             // Clear progress
             this.taskProgress = null;
 
+            // Clear dataspaces
+            this.removeSpaces(ctx);
+
             // Fix for PRC-30: Always change working dir to avoid keeping a file handle on task temp dir
             try {
                 engine.parseAndEval("setwd(Sys.getenv(\"HOME\"))");
@@ -215,7 +309,61 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
     }
 
     /**
-     * Retrieve variables map from R and merge them with the java one
+     * Clears the cached results of the selection scripts, the next evaluation of each
+     * selection script is done by R.
+     */
+    public static synchronized void invalidateSelectionCache() {
+        if (selectionResults != null) {
+            selectionResults.invalidateAll();
+        }
+    }
+
+    /**
+     * Tags an R selection script as static, its result is cached when the
+     * {@value #SELECTION_CACHE_TTL_PROPERTY} property is set. Dynamic selection scripts
+     * must not be tagged, they are evaluated each time.
+     */
+    public static String staticSelectionScript(String script) {
+        if (script.startsWith(STATIC_SELECTION_TAG)) {
+            return script;
+        }
+        return STATIC_SELECTION_TAG + "\n" + script;
+    }
+
+    /**
+     * @return the cache of the selection results, or null if the TTL is not positive
+     */
+    private static synchronized Cache<String, CachedSelection> selectionCache(long ttl) {
+        if (ttl <= 0) {
+            return null;
+        }
+        if (selectionResults == null || selectionResultsTTL != ttl) {
+            selectionResults = CacheBuilder.newBuilder().expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                    .maximumSize(MAX_CACHED_SELECTIONS).build();
+            selectionResultsTTL = ttl;
+        }
+        return selectionResults;
+    }
+
+    private static String selectionKey(String script, String[] args) {
+        return script + '\u0000' + Arrays.toString(args);
+    }
+
+    private void removeSelectionResult(ScriptContext ctx) {
+        try {
+            engine.parseAndEval("if (exists('" + SelectionScript.RESULT_VARIABLE + "', envir = globalenv(), inherits = FALSE)) rm('" +
+                SelectionScript.RESULT_VARIABLE + "', envir = globalenv())");
+        } catch (Exception ex) {
+            writeExceptionToError(ex, ctx);
+        }
+    }
+
+    /**
+     * Retrieve the variables modified in R and merge them with the java ones.
+     * Variables are compared in R with the snapshot taken by
+     * {@link #assignVariables(Bindings, ScriptContext)}, unmodified variables are still
+     * shared with the snapshot so identical() returns immediately and only the modified
+     * or new variables are converted.
      */
     private void updateJobVariables(Map<String, Serializable> jobVariables) throws Exception {
         if (jobVariables == null) {
@@ -223,13 +371,106 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
         }
 
         // Fix for PRC-35: NullPointerException in PARScriptEngine.eval()
-        REXP variablesRexp = engine.get(TASK_SCRIPT_VARIABLES, null, true);
-        if (variablesRexp == null) {
+        if (!this.isDefined(TASK_SCRIPT_VARIABLES)) {
             return;
         }
 
-        Map newMap = RexpConvert.asMap(variablesRexp);
-        jobVariables.putAll(newMap);
+        try {
+            REXP variablesRexp = engine.parseAndEval("local({ " +
+                "if (!exists('" + VARIABLES_SNAPSHOT_NAME + "', envir = globalenv()) || !is.list(" + TASK_SCRIPT_VARIABLES + ")) return(" + TASK_SCRIPT_VARIABLES + "); " +
+                "snapshot <- get('" + VARIABLES_SNAPSHOT_NAME + "', envir = globalenv()); " +
+                "changed <- vapply(names(" + TASK_SCRIPT_VARIABLES + "), function(name) !is.element(name, names(snapshot)) || " +
+                "!identical(" + TASK_SCRIPT_VARIABLES + "[[name]], snapshot[[name]]), logical(1), USE.NAMES = FALSE); " +
+                "if (any(changed)) " + TASK_SCRIPT_VARIABLES + "[changed] else NULL })");
+            if (variablesRexp == null || variablesRexp.isNull()) {
+                return;
+            }
+
+            Map newMap = RexpConvert.asMap(variablesRexp);
+            jobVariables.putAll(newMap);
+        } finally {
+            engine.parseAndEval("if (exists('" + VARIABLES_SNAPSHOT_NAME + "', envir = globalenv())) rm('" +
+                VARIABLES_SNAPSHOT_NAME + "', envir = globalenv())");
+        }
+    }
+
+    /**
+     * If the size of the result is above the threshold given by the
+     * {@value #RESULT_SPILL_THRESHOLD_PROPERTY} property, or by the
+     * {@value #RESULT_SPILL_THRESHOLD_VARIABLE} variable of the script which
+     * overrides the property, the result is saved from R
+     * into a file of the localspace and a reference to this file is returned. The size
+     * is measured inside R so the result is never copied into the JVM.
+     *
+     * @return the reference to the spilled result or null if the result was not spilled
+     */
+    private RResultReference spillResultIfOversized(REXP rexp, Bindings bindings,
+            Map<String, Serializable> jobVariables) throws Exception {
+        long threshold = this.spillThreshold();
+        DataSpacesFileObject dsfo = (DataSpacesFileObject) bindings.get(DS_SCRATCH_BINDING_NAME);
+        if (threshold <= 0 || dsfo == null) {
+            return null;
+        }
+
+        String resultName = TaskScript.RESULT_VARIABLE;
+        if (!this.isDefined(resultName)) {
+            if (rexp == null) {
+                return null;
+            }
+            resultName = SPILLED_RESULT_TMP_NAME;
+            engine.assign(resultName, rexp);
+        }
+        try {
+            double size = engine.parseAndEval("as.numeric(object.size(" + resultName + "))").asDouble();
+            if (size <= threshold) {
+                return null;
+            }
+            String relativePath = RESULT_SPILL_DIR + "/" + spillFileName(jobVariables);
+            Path file = Paths.get(convertToRPath(dsfo), relativePath);
+            Files.createDirectories(file.getParent());
+            engine.parseAndEval("saveRDS(" + resultName + ", file = '" + file.toString().replace("\\", "/") + "')");
+            return new RResultReference(relativePath, Files.size(file));
+        } finally {
+            if (SPILLED_RESULT_TMP_NAME.equals(resultName)) {
+                engine.parseAndEval("rm(" + SPILLED_RESULT_TMP_NAME + ")");
+            }
+        }
+    }
+
+    /**
+     * The threshold assigned by the script, e.g. by PASolve() which declares the
+     * spill file as an output file of its tasks, is removed once read so that it
+     * does not apply to the next scripts
+     */
+    private long spillThreshold() throws Exception {
+        if (!this.isDefined(RESULT_SPILL_THRESHOLD_VARIABLE)) {
+            return Long.getLong(RESULT_SPILL_THRESHOLD_PROPERTY, -1L);
+        }
+        try {
+            double threshold = engine.parseAndEval("as.numeric(" + RESULT_SPILL_THRESHOLD_VARIABLE + ")")
+                    .asDouble();
+            return Double.isNaN(threshold) ? -1L : (long) threshold;
+        } finally {
+            engine.parseAndEval("rm(" + RESULT_SPILL_THRESHOLD_VARIABLE + ")");
+        }
+    }
+
+    /**
+     * The spill file is named after the job id and the task name when they are known,
+     * this allows to declare it as an output file of the task before the job submission
+     */
+    private static String spillFileName(Map<String, Serializable> jobVariables) {
+        if (jobVariables != null && jobVariables.get(JOB_ID_VARIABLE) != null
+                && jobVariables.get(TASK_NAME_VARIABLE) != null) {
+            return jobVariables.get(JOB_ID_VARIABLE) + "/" + jobVariables.get(TASK_NAME_VARIABLE)
+                    + RESULT_SPILL_EXTENSION;
+        }
+        return UUID.randomUUID().toString() + "/" + TaskScript.RESULT_VARIABLE + RESULT_SPILL_EXTENSION;
+    }
+
+    private boolean isDefined(String name) throws Exception {
+        REXP exists = engine.parseAndEval("exists('" + name + "', envir = globalenv(), inherits = FALSE)");
+        return ((REXPLogical) exists).isTRUE()[0];
     }
 
     private void enableWarnings(ScriptContext ctx) {
@@ -273,20 +514,32 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
         }
     }
 
-    private void assignResults(Bindings bindings, ScriptContext ctx) {
+    /**
+     * The 'results' variable is a list with the values of the parent tasks, by task name.
+     * When the script only accesses the parents by literal names, e.g. results[['t1']] or
+     * results$t1, or declares the parents it uses with the {@value #RESULTS_TAG} tag,
+     * only those values are deserialized and converted, see
+     * {@link #requestedResults(String)}.
+     */
+    private void assignResults(String script, Bindings bindings, ScriptContext ctx) {
         TaskResult[] results = (TaskResult[]) bindings.get(TaskScript.RESULTS_VARIABLE);
         if (results == null) {
             return;
         }
-        Map<String, Object> resultsMap = new HashMap<String, Object>(results.length);
+        Set<String> requested = requestedResults(script);
+        Map<String, Object> resultsMap = new LinkedHashMap<String, Object>(results.length);
         for (TaskResult r : results) {
+            String name = r.getTaskId().getReadableName();
+            if (requested != null && !requested.contains(name)) {
+                continue;
+            }
             Object value;
             try {
                 value = r.value();
             } catch (Throwable e) {
                 value = null;
             }
-            resultsMap.put(r.getTaskId().getReadableName(), value);
+            resultsMap.put(name, value);
         }
         try {
             REXP rexp = RexpConvert.jobj2rexp(resultsMap);
@@ -296,12 +549,48 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
         }
     }
 
+    /**
+     * @return the names of the parent tasks declared by the script or accessed through
+     *         literal names, or null if the script uses the 'results' list in any other way,
+     *         or neither declares nor mentions it, and needs all of them
+     */
+    private static Set<String> requestedResults(String script) {
+        Set<String> names = new HashSet<String>();
+        boolean declared = false;
+        Matcher declaration = RESULTS_DECLARATION.matcher(script);
+        while (declaration.find()) {
+            declared = true;
+            for (String name : declaration.group(1).split(",")) {
+                if (!name.trim().isEmpty()) {
+                    names.add(name.trim());
+                }
+            }
+        }
+        Matcher matcher = RESULT_ACCESS.matcher(script);
+        StringBuffer rest = new StringBuffer();
+        while (matcher.find()) {
+            String name = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+            if (name.startsWith("`")) {
+                name = name.substring(1, name.length() - 1);
+            }
+            names.add(name.replaceAll("\\\\(.)", "$1"));
+            matcher.appendReplacement(rest, "");
+        }
+        matcher.appendTail(rest);
+        if (RESULTS_USE.matcher(rest).find() || (names.isEmpty() && !declared)) {
+            return null;
+        }
+        return names;
+    }
+
     private Map<String, Serializable> assignVariables(Bindings bindings, ScriptContext ctx) {
         Map<String, Serializable> variables = (Map<String, Serializable>) bindings.get(TASK_SCRIPT_VARIABLES);
         if (variables != null) {
             try {
                 REXP rexp = RexpConvert.jobj2rexp(variables);
                 engine.assign(TASK_SCRIPT_VARIABLES, rexp);
+                // the snapshot shares the values, nothing is copied until the script modifies a variable
+                engine.parseAndEval(VARIABLES_SNAPSHOT_NAME + " <- " + TASK_SCRIPT_VARIABLES);
             } catch (Exception ex) {
                 writeExceptionToError(ex, ctx);
             }
@@ -330,44 +619,12 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
         }
     }
 
-    private void assignUserSpace(Bindings bindings, ScriptContext ctx) {
-        DataSpacesFileObject dsfo = (DataSpacesFileObject) bindings.get(DS_USER_BINDING_NAME);
-        if (dsfo == null) {
-            return;
-        }
-        String path;
-        try {
-            path = convertToRPath(dsfo);
-        } catch (Exception e) {
-            path = dsfo.getRealURI();
-        }
-        try {
-            engine.assign("userspace", new REXPString(path));
-        } catch (Exception ex) {
-            writeExceptionToError(ex, ctx);
-        }
-    }
-
-    private void assignGlobalSpace(Bindings bindings, ScriptContext ctx) {
-        DataSpacesFileObject dsfo = (DataSpacesFileObject) bindings.get(DS_GLOBAL_BINDING_NAME);
-        if (dsfo == null) {
-            return;
-        }
-        String path;
-        try {
-            path = convertToRPath(dsfo);
-        } catch (Exception e) {
-            path = dsfo.getRealURI();
-        }
-        try {
-            engine.assign("globalspace", new REXPString(path));
-        } catch (Exception ex) {
-            writeExceptionToError(ex, ctx);
-        }
-    }
-
-    private void assignInputSpace(Bindings bindings, ScriptContext ctx) {
-        DataSpacesFileObject dsfo = (DataSpacesFileObject) bindings.get(DS_INPUT_BINDING_NAME);
+    /**
+     * Sets the R variable to the path of the dataspace, the canonical path is cached so
+     * the shared spaces are only resolved once per JVM
+     */
+    private void assignSpace(Bindings bindings, String bindingName, String variable, ScriptContext ctx) {
+        DataSpacesFileObject dsfo = (DataSpacesFileObject) bindings.get(bindingName);
         if (dsfo == null) {
             return;
         }
@@ -378,25 +635,28 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
             path = dsfo.getRealURI();
         }
         try {
-            engine.assign("inputspace", new REXPString(path));
+            engine.assign(variable, new REXPString(path));
+            this.assignedSpaces.add(variable);
         } catch (Exception ex) {
             writeExceptionToError(ex, ctx);
         }
     }
 
-    private void assignOutputSpace(Bindings bindings, ScriptContext ctx) {
-        DataSpacesFileObject dsfo = (DataSpacesFileObject) bindings.get(DS_OUTPUT_BINDING_NAME);
-        if (dsfo == null) {
+    /**
+     * The global environment is kept between scripts, the dataspaces of a task must not
+     * be seen by the next one
+     */
+    private void removeSpaces(ScriptContext ctx) {
+        if (this.assignedSpaces.isEmpty()) {
             return;
         }
-        String path;
-        try {
-            path = convertToRPath(dsfo);
-        } catch (Exception e) {
-            path = dsfo.getRealURI();
+        StringBuilder names = new StringBuilder();
+        for (String variable : this.assignedSpaces) {
+            names.append(names.length() == 0 ? "'" : ", '").append(variable).append("'");
         }
+        this.assignedSpaces.clear();
         try {
-            engine.assign("outputspace", new REXPString(path));
+            engine.parseAndEval("suppressWarnings(rm(list = c(" + names + "), envir = globalenv()))");
         } catch (Exception ex) {
             writeExceptionToError(ex, ctx);
         }
@@ -406,11 +666,16 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
      * R paths are not antislash friendly
      */
     private String convertToRPath(DataSpacesFileObject dsfo) throws Exception {
-        String path = dsfo.getRealURI();
-        URI uri = new URI(path);
-        File f = new File(uri);
-        path = f.getCanonicalPath();
-        return path.replace("\\", "/");
+        final String realURI = dsfo.getRealURI();
+        return canonicalPaths.get(realURI, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                URI uri = new URI(realURI);
+                File f = new File(uri);
+                String path = f.getCanonicalPath();
+                return path.replace("\\", "/");
+            }
+        });
     }
 
     /**
@@ -500,4 +765,17 @@ public class PARScriptEngine extends AbstractScriptEngine implements REngineCall
         ex.printStackTrace(st);
         st.flush();
     }
+
+    /**
+     * Result of a selection script
+     */
+    private static final class CachedSelection {
+        private final Object result;
+        private final Object selected;
+
+        private CachedSelection(Object result, Object selected) {
+            this.result = result;
+            this.selected = selected;
+        }
+    }
 }
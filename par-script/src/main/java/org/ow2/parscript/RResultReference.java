@@ -0,0 +1,45 @@
+package org.ow2.parscript;
+
+import java.io.Serializable;
+
+/**
+ * Lightweight task result returned by the PARScriptEngine instead of a result
+ * whose size is above the spill threshold. The actual result is saved by R
+ * (see saveRDS) in a file of the task localspace, the path of this file is
+ * relative to the localspace and stays the same once the file is transferred
+ * to another dataspace as an output file of the task.
+ *
+ * @author Activeeon Team
+ */
+public class RResultReference implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Path of the saved result relative to the dataspace root
+     */
+    private final String path;
+
+    /**
+     * Size in bytes of the saved result
+     */
+    private final long size;
+
+    public RResultReference(String path, long size) {
+        this.path = path;
+        this.size = size;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "RResultReference[" + path + ", " + size + " bytes]";
+    }
+}
@@ -0,0 +1,107 @@
+package org.ow2.parscript.selection;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ow2.proactive.scripting.InvalidScriptException;
+import org.ow2.proactive.scripting.SelectionScript;
+import com.google.common.io.CharStreams;
+
+
+/**
+ * Selection scripts used by the hostname, ip and property selection of PA(). The
+ * scripts are static and receive the selection criteria as arguments, so a single
+ * instance is shared by all the tasks selecting the same nodes.
+ *
+ * @author Activeeon Team
+ */
+public final class SelectionScripts {
+
+    public static final String ENGINE_NAME = "JavaScript";
+
+    private static final String CHECK_HOSTNAME = "checkHostName.js";
+    private static final String EXCLUDE_HOSTNAME = "excludeHostName.js";
+    private static final String CHECK_IP = "checkIP.js";
+    private static final String CHECK_JAVA_PROPERTY = "checkJavaProperty.js";
+
+    /**
+     * Script contents by resource name
+     */
+    private static final Map<String, String> contents = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Selection scripts by resource name and arguments
+     */
+    private static final Map<List<String>, SelectionScript> scripts = new ConcurrentHashMap<List<String>, SelectionScript>();
+
+    private SelectionScripts() {
+    }
+
+    /**
+     * Selects the nodes running on the given host
+     */
+    public static SelectionScript checkHostName(String hostName) throws IOException, InvalidScriptException {
+        return get(CHECK_HOSTNAME, hostName);
+    }
+
+    /**
+     * Selects the nodes which do not run on the given host
+     */
+    public static SelectionScript excludeHostName(String hostName) throws IOException, InvalidScriptException {
+        return get(EXCLUDE_HOSTNAME, hostName);
+    }
+
+    /**
+     * Selects the nodes whose host IP matches the mask, x.x.x.* matches a network
+     */
+    public static SelectionScript checkIP(String ipMask) throws IOException, InvalidScriptException {
+        return get(CHECK_IP, ipMask);
+    }
+
+    /**
+     * Selects the nodes whose JVM property has the expected value
+     */
+    public static SelectionScript checkJavaProperty(String propertyName, String expectedValue)
+            throws IOException, InvalidScriptException {
+        return get(CHECK_JAVA_PROPERTY, propertyName, expectedValue);
+    }
+
+    private static SelectionScript get(String resource, String... args) throws IOException,
+            InvalidScriptException {
+        List<String> key = Arrays.asList(concat(resource, args));
+        SelectionScript script = scripts.get(key);
+        if (script == null) {
+            script = new SelectionScript(content(resource), ENGINE_NAME, args, false);
+            scripts.put(key, script);
+        }
+        return script;
+    }
+
+    private static String[] concat(String first, String[] others) {
+        String[] all = new String[others.length + 1];
+        all[0] = first;
+        System.arraycopy(others, 0, all, 1, others.length);
+        return all;
+    }
+
+    private static String content(String resource) throws IOException {
+        String content = contents.get(resource);
+        if (content == null) {
+            Reader reader = new InputStreamReader(SelectionScripts.class.getResourceAsStream(resource),
+                    Charset.forName("UTF-8"));
+            try {
+                content = CharStreams.toString(reader);
+            } finally {
+                reader.close();
+            }
+            contents.put(resource, content);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,112 @@
+package org.ow2.parscript.serialization;
+
+/**
+ * Constants of the R serialization format as defined in src/main/serialize.c of the R sources.
+ *
+ * @author Activeeon Team
+ */
+final class RSerialization {
+
+    static final byte[] XDR_FORMAT = { 'X', '\n' };
+    static final int GZIP_MAGIC = 0x1f8b;
+
+    static final int VERSION_2 = 2;
+    static final int VERSION_3 = 3;
+
+    /** Version of R written in the header, 3.2.0 */
+    static final int WRITER_R_VERSION = (3 << 16) | (2 << 8);
+    /** Minimal version of R able to read the version 2 format, 2.3.0 */
+    static final int MIN_READER_R_VERSION = (2 << 16) | (3 << 8);
+
+    // SEXP types
+    static final int NILSXP = 0;
+    static final int SYMSXP = 1;
+    static final int LISTSXP = 2;
+    static final int CLOSXP = 3;
+    static final int ENVSXP = 4;
+    static final int PROMSXP = 5;
+    static final int LANGSXP = 6;
+    static final int SPECIALSXP = 7;
+    static final int BUILTINSXP = 8;
+    static final int CHARSXP = 9;
+    static final int LGLSXP = 10;
+    static final int INTSXP = 13;
+    static final int REALSXP = 14;
+    static final int CPLXSXP = 15;
+    static final int STRSXP = 16;
+    static final int DOTSXP = 17;
+    static final int VECSXP = 19;
+    static final int EXPRSXP = 20;
+    static final int BCODESXP = 21;
+    static final int EXTPTRSXP = 22;
+    static final int WEAKREFSXP = 23;
+    static final int RAWSXP = 24;
+    static final int S4SXP = 25;
+
+    // Pseudo SEXP types used only by the serialization
+    static final int REFSXP = 255;
+    static final int NILVALUE_SXP = 254;
+    static final int GLOBALENV_SXP = 253;
+    static final int UNBOUNDVALUE_SXP = 252;
+    static final int MISSINGARG_SXP = 251;
+    static final int BASENAMESPACE_SXP = 250;
+    static final int NAMESPACESXP = 249;
+    static final int PACKAGESXP = 248;
+    static final int PERSISTSXP = 247;
+    static final int EMPTYENV_SXP = 242;
+    static final int BASEENV_SXP = 241;
+    static final int ATTRLANGSXP = 240;
+    static final int ATTRLISTSXP = 239;
+    static final int ALTREP_SXP = 238;
+
+    // Flags
+    static final int IS_OBJECT_BIT_MASK = 1 << 8;
+    static final int HAS_ATTR_BIT_MASK = 1 << 9;
+    static final int HAS_TAG_BIT_MASK = 1 << 10;
+
+    // CHARSXP encoding levels
+    static final int BYTES_MASK = 1 << 1;
+    static final int LATIN1_MASK = 1 << 2;
+    static final int UTF8_MASK = 1 << 3;
+    static final int ASCII_MASK = 1 << 6;
+
+    static final int NA_INTEGER = Integer.MIN_VALUE;
+    static final int NA_STRING_LENGTH = -1;
+
+    private RSerialization() {
+    }
+
+    static int type(int flags) {
+        return flags & 0xFF;
+    }
+
+    static int levels(int flags) {
+        return flags >> 12;
+    }
+
+    static boolean isObject(int flags) {
+        return (flags & IS_OBJECT_BIT_MASK) != 0;
+    }
+
+    static boolean hasAttributes(int flags) {
+        return (flags & HAS_ATTR_BIT_MASK) != 0;
+    }
+
+    static boolean hasTag(int flags) {
+        return (flags & HAS_TAG_BIT_MASK) != 0;
+    }
+
+    static int flags(int type, int levels, boolean isObject, boolean hasAttributes, boolean hasTag) {
+        int flags = type | (levels << 12);
+        if (isObject) {
+            flags |= IS_OBJECT_BIT_MASK;
+        }
+        if (hasAttributes) {
+            flags |= HAS_ATTR_BIT_MASK;
+        }
+        if (hasTag) {
+            flags |= HAS_TAG_BIT_MASK;
+        }
+        return flags;
+    }
+}
@@ -0,0 +1,564 @@
+package org.ow2.parscript.serialization;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPDouble;
+import org.rosuda.REngine.REXPExpressionVector;
+import org.rosuda.REngine.REXPGenericVector;
+import org.rosuda.REngine.REXPInteger;
+import org.rosuda.REngine.REXPLanguage;
+import org.rosuda.REngine.REXPList;
+import org.rosuda.REngine.REXPLogical;
+import org.rosuda.REngine.REXPMismatchException;
+import org.rosuda.REngine.REXPNull;
+import org.rosuda.REngine.REXPRaw;
+import org.rosuda.REngine.REXPS4;
+import org.rosuda.REngine.REXPString;
+import org.rosuda.REngine.REXPSymbol;
+import org.rosuda.REngine.REXPUnknown;
+import org.rosuda.REngine.RList;
+
+import static org.ow2.parscript.serialization.RSerialization.*;
+
+/**
+ * Streaming reader of the R XDR serialization format (versions 2 and 3), as produced
+ * by serialize(x, NULL) or saveRDS(x). No R engine is required.
+ * <p>
+ * The objects are read as REXP so they can be converted to Java objects with
+ * {@link org.ow2.parscript.RexpConvert}. Atomic vectors, lists, pairlists, symbols,
+ * attributes and the usual ALTREP compact sequences and wrappers are supported.
+ * Environments, closures and other language objects are skipped and read as
+ * REXPUnknown, complex vectors are also read as REXPUnknown. Byte code and external
+ * references cannot be read.
+ *
+ * @author Activeeon Team
+ */
+public class RSerializationReader implements Closeable {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private final DataInputStream in;
+
+    /**
+     * Symbols, environments and other reference objects already read
+     */
+    private final List<REXP> references = new ArrayList<REXP>();
+
+    private Charset nativeEncoding = UTF8;
+
+    private int version;
+
+    public RSerializationReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    /**
+     * Reads an object serialized by R, the stream may be compressed with gzip like the
+     * files written by saveRDS.
+     */
+    public static REXP unserialize(InputStream in) throws IOException {
+        BufferedInputStream bin = new BufferedInputStream(in);
+        bin.mark(2);
+        int magic = (bin.read() << 8) | bin.read();
+        bin.reset();
+        InputStream source = magic == GZIP_MAGIC ? new GZIPInputStream(bin) : bin;
+        return new RSerializationReader(source).readObject();
+    }
+
+    /**
+     * Reads an object serialized by R, for instance a task result returned by PA().
+     */
+    public static REXP unserialize(byte[] bytes) throws IOException {
+        return unserialize(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Reads the serialization header followed by one object.
+     */
+    public REXP readObject() throws IOException {
+        this.readHeader();
+        this.references.clear();
+        return this.readItem();
+    }
+
+    /**
+     * @return the version of the format read by the last call to readObject()
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readHeader() throws IOException {
+        byte[] format = new byte[2];
+        in.readFully(format);
+        if (format[0] != XDR_FORMAT[0] || format[1] != XDR_FORMAT[1]) {
+            throw new IOException("Unsupported R serialization format '" + (char) format[0]
+                    + "', only the XDR format is supported");
+        }
+        version = in.readInt();
+        in.readInt(); // version of R that wrote the object
+        in.readInt(); // minimal version of R that can read the object
+        if (version == VERSION_3) {
+            byte[] encoding = new byte[in.readInt()];
+            in.readFully(encoding);
+            nativeEncoding = nativeEncoding(new String(encoding, ASCII));
+        } else if (version != VERSION_2) {
+            throw new IOException("Unsupported R serialization version " + version);
+        }
+    }
+
+    /**
+     * The strings without declared encoding are decoded with the native encoding
+     * of the R session that wrote them, UTF-8 if Java does not know its name,
+     * e.g. "unknown"
+     */
+    private static Charset nativeEncoding(String name) {
+        try {
+            return Charset.forName(name);
+        } catch (IllegalArgumentException e) {
+            // unsupported or illegal charset name
+            return UTF8;
+        }
+    }
+
+    private REXP readItem() throws IOException {
+        return this.readItem(in.readInt());
+    }
+
+    private REXP readItem(int flags) throws IOException {
+        int type = type(flags);
+        switch (type) {
+            case NILVALUE_SXP:
+                return new REXPNull();
+            case EMPTYENV_SXP:
+            case BASEENV_SXP:
+            case GLOBALENV_SXP:
+            case BASENAMESPACE_SXP:
+                return new REXPUnknown(ENVSXP);
+            case UNBOUNDVALUE_SXP:
+            case MISSINGARG_SXP:
+                return new REXPUnknown(type);
+            case REFSXP:
+                return this.readReference(flags);
+            case PERSISTSXP:
+                throw new IOException("Persistent references cannot be read without a hook function");
+            case SYMSXP:
+                return this.readSymbol();
+            case PACKAGESXP:
+            case NAMESPACESXP:
+                return this.readNamespace();
+            case ENVSXP:
+                return this.readEnvironment();
+            case LISTSXP:
+            case LANGSXP:
+            case DOTSXP:
+            case ATTRLISTSXP:
+            case ATTRLANGSXP:
+                return this.readPairList(flags);
+            case CLOSXP:
+            case PROMSXP:
+                return this.readClosure(flags);
+            case SPECIALSXP:
+            case BUILTINSXP:
+                byte[] name = new byte[in.readInt()];
+                in.readFully(name);
+                return new REXPUnknown(type, this.readAttributes(flags));
+            case EXTPTRSXP:
+                REXP extptr = new REXPUnknown(EXTPTRSXP);
+                references.add(extptr);
+                this.readItem(); // protected value
+                this.readItem(); // tag
+                this.readAttributes(flags);
+                return extptr;
+            case WEAKREFSXP:
+                REXP weakref = new REXPUnknown(WEAKREFSXP);
+                references.add(weakref);
+                this.readAttributes(flags);
+                return weakref;
+            case ALTREP_SXP:
+                return this.readAltrep();
+            case S4SXP:
+                return new REXPS4(this.readAttributes(flags));
+            case CHARSXP:
+                return new REXPString(this.readString(flags));
+            case LGLSXP:
+                return this.readLogicalVector(flags);
+            case INTSXP:
+                return new REXPInteger(this.readIntegers(), this.readAttributes(flags));
+            case REALSXP:
+                return new REXPDouble(this.readDoubles(), this.readAttributes(flags));
+            case CPLXSXP:
+                int length = this.readLength();
+                for (int i = 0; i < 2 * length; i++) {
+                    in.readDouble();
+                }
+                return new REXPUnknown(CPLXSXP, this.readAttributes(flags));
+            case STRSXP:
+                return this.readStringVector(flags);
+            case VECSXP:
+            case EXPRSXP:
+                return this.readGenericVector(flags);
+            case RAWSXP:
+                byte[] bytes = new byte[this.readLength()];
+                in.readFully(bytes);
+                return new REXPRaw(bytes, this.readAttributes(flags));
+            default:
+                throw new IOException("Unsupported R serialization type " + type);
+        }
+    }
+
+    private REXP readReference(int flags) throws IOException {
+        int index = flags >> 8;
+        if (index == 0) {
+            index = in.readInt();
+        }
+        if (index < 1 || index > references.size()) {
+            throw new IOException("Invalid reference index " + index);
+        }
+        return references.get(index - 1);
+    }
+
+    private REXP readSymbol() throws IOException {
+        int flags = in.readInt();
+        REXP symbol = new REXPSymbol(this.readString(flags));
+        references.add(symbol);
+        return symbol;
+    }
+
+    private REXP readNamespace() throws IOException {
+        if (in.readInt() != 0) {
+            throw new IOException("Names in persistent strings are not supported");
+        }
+        int length = in.readInt();
+        for (int i = 0; i < length; i++) {
+            this.readItem();
+        }
+        REXP namespace = new REXPUnknown(ENVSXP);
+        references.add(namespace);
+        return namespace;
+    }
+
+    private REXP readEnvironment() throws IOException {
+        in.readInt(); // locked
+        REXP environment = new REXPUnknown(ENVSXP);
+        // the environment must be referenced before its content is read
+        references.add(environment);
+        this.readItem(); // enclosure
+        this.readItem(); // frame
+        this.readItem(); // hash table
+        this.readItem(); // attributes
+        return environment;
+    }
+
+    private REXP readClosure(int flags) throws IOException {
+        this.readAttributes(flags);
+        if (hasTag(flags)) {
+            this.readItem(); // environment
+        }
+        this.readItem(); // formals or value
+        this.readItem(); // body or expression
+        return new REXPUnknown(type(flags));
+    }
+
+    /**
+     * Pair lists are read iteratively since each cell is serialized after the previous one
+     */
+    private REXP readPairList(int flags) throws IOException {
+        int type = type(flags);
+        REXPList attributes = null;
+        List<REXP> values = new ArrayList<REXP>();
+        List<String> names = new ArrayList<String>();
+        boolean named = false;
+        boolean first = true;
+        while (true) {
+            int cellType = type(flags);
+            if (cellType == ATTRLISTSXP || cellType == ATTRLANGSXP || hasAttributes(flags)) {
+                REXPList cellAttributes = this.readAttributeList();
+                if (first) {
+                    attributes = cellAttributes;
+                }
+            }
+            String name = "";
+            if (hasTag(flags)) {
+                REXP tag = this.readItem();
+                if (tag instanceof REXPSymbol) {
+                    name = ((REXPSymbol) tag).asString();
+                    named = true;
+                }
+            }
+            values.add(this.readItem());
+            names.add(name);
+            first = false;
+
+            flags = in.readInt();
+            int next = type(flags);
+            if (next == NILVALUE_SXP) {
+                break;
+            }
+            if (next != LISTSXP && next != LANGSXP && next != ATTRLISTSXP && next != ATTRLANGSXP
+                    && next != DOTSXP) {
+                // dotted pair, the last cdr is not a pair list
+                values.add(this.readItem(flags));
+                names.add("");
+                break;
+            }
+        }
+        RList rlist = named ? new RList(values, names) : new RList(values);
+        if (type == LANGSXP || type == ATTRLANGSXP) {
+            return new REXPLanguage(rlist, attributes);
+        }
+        return new REXPList(rlist, attributes);
+    }
+
+    private REXPList readAttributes(int flags) throws IOException {
+        if (!hasAttributes(flags)) {
+            return null;
+        }
+        return this.readAttributeList();
+    }
+
+    private REXPList readAttributeList() throws IOException {
+        REXP attributes = this.readItem();
+        if (attributes instanceof REXPList) {
+            return (REXPList) attributes;
+        }
+        if (attributes.isNull()) {
+            return null;
+        }
+        throw new IOException("Invalid attributes " + attributes);
+    }
+
+    private int readLength() throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            long upper = in.readInt() & 0xFFFFFFFFL;
+            long lower = in.readInt() & 0xFFFFFFFFL;
+            long longLength = (upper << 32) + lower;
+            if (longLength > Integer.MAX_VALUE) {
+                throw new IOException("Vectors of length " + longLength + " are not supported");
+            }
+            return (int) longLength;
+        }
+        return length;
+    }
+
+    private int[] readIntegers() throws IOException {
+        int[] values = new int[this.readLength()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private double[] readDoubles() throws IOException {
+        double[] values = new double[this.readLength()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Double.longBitsToDouble(in.readLong());
+        }
+        return values;
+    }
+
+    private REXP readLogicalVector(int flags) throws IOException {
+        int[] values = this.readIntegers();
+        byte[] logicals = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            logicals[i] = toLogical(values[i]);
+        }
+        return new REXPLogical(logicals, this.readAttributes(flags));
+    }
+
+    private static byte toLogical(int value) {
+        if (value == NA_INTEGER) {
+            return REXPLogical.NA;
+        }
+        return value == 0 ? REXPLogical.FALSE : REXPLogical.TRUE;
+    }
+
+    private REXP readStringVector(int flags) throws IOException {
+        String[] values = new String[this.readLength()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = this.readString(in.readInt());
+        }
+        return new REXPString(values, this.readAttributes(flags));
+    }
+
+    /**
+     * Reads the content of a CHARSXP, NA is read as null
+     */
+    private String readString(int flags) throws IOException {
+        if (type(flags) != CHARSXP) {
+            throw new IOException("Expected a CHARSXP but found type " + type(flags));
+        }
+        int length = in.readInt();
+        if (length == NA_STRING_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        int levels = levels(flags);
+        if ((levels & UTF8_MASK) != 0) {
+            return new String(bytes, UTF8);
+        } else if ((levels & (LATIN1_MASK | BYTES_MASK)) != 0) {
+            return new String(bytes, LATIN1);
+        } else if ((levels & ASCII_MASK) != 0) {
+            return new String(bytes, ASCII);
+        }
+        return new String(bytes, nativeEncoding);
+    }
+
+    private REXP readGenericVector(int flags) throws IOException {
+        int length = this.readLength();
+        List<REXP> values = new ArrayList<REXP>(length);
+        for (int i = 0; i < length; i++) {
+            values.add(this.readItem());
+        }
+        REXPList attributes = this.readAttributes(flags);
+        RList rlist = toRList(values, attributes);
+        if (type(flags) == EXPRSXP) {
+            return new REXPExpressionVector(rlist, attributes);
+        }
+        return new REXPGenericVector(rlist, attributes);
+    }
+
+    /**
+     * The names attribute of a list is also set on the RList so the list can be converted to a map
+     */
+    private static RList toRList(List<REXP> values, REXPList attributes) throws IOException {
+        if (attributes != null) {
+            REXP names = attributes.asList().at("names");
+            if (names != null && names.isString()) {
+                try {
+                    String[] keys = names.asStrings();
+                    if (keys.length == values.size()) {
+                        return new RList(values, keys);
+                    }
+                } catch (REXPMismatchException e) {
+                    throw new IOException(e);
+                }
+            }
+        }
+        return new RList(values);
+    }
+
+    /**
+     * Alternative representations are expanded to regular vectors
+     */
+    private REXP readAltrep() throws IOException {
+        REXP info = this.readItem();
+        REXP state = this.readItem();
+        REXP attributes = this.readItem();
+        REXPList attributeList = attributes instanceof REXPList ? (REXPList) attributes : null;
+
+        String className;
+        try {
+            className = info.asList().at(0).asString();
+            switch (className) {
+                case "compact_intseq":
+                    return new REXPInteger(expandIntegerSequence(state.asDoubles()), attributeList);
+                case "compact_realseq":
+                    return new REXPDouble(expandRealSequence(state.asDoubles()), attributeList);
+                case "wrap_integer":
+                case "wrap_real":
+                case "wrap_logical":
+                case "wrap_string":
+                case "wrap_raw":
+                case "wrap_list":
+                case "wrap_complex":
+                    return withAttributes(state.asList().at(0), attributeList);
+                case "deferred_string":
+                    return new REXPString(coerceToStrings(state.asList().at(0)), attributeList);
+                default:
+                    throw new IOException("Unsupported ALTREP class " + className);
+            }
+        } catch (REXPMismatchException e) {
+            throw new IOException("Invalid ALTREP object", e);
+        }
+    }
+
+    private static int[] expandIntegerSequence(double[] state) {
+        int[] values = new int[(int) state[0]];
+        int start = (int) state[1];
+        int step = (int) state[2];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = start + i * step;
+        }
+        return values;
+    }
+
+    private static double[] expandRealSequence(double[] state) {
+        double[] values = new double[(int) state[0]];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = state[1] + i * state[2];
+        }
+        return values;
+    }
+
+    private static REXP withAttributes(REXP rexp, REXPList attributes) throws REXPMismatchException {
+        if (attributes == null) {
+            return rexp;
+        }
+        if (rexp instanceof REXPInteger) {
+            return new REXPInteger(rexp.asIntegers(), attributes);
+        } else if (rexp instanceof REXPDouble) {
+            return new REXPDouble(rexp.asDoubles(), attributes);
+        } else if (rexp instanceof REXPLogical) {
+            return new REXPLogical(rexp.asBytes(), attributes);
+        } else if (rexp instanceof REXPString) {
+            return new REXPString(rexp.asStrings(), attributes);
+        } else if (rexp instanceof REXPRaw) {
+            return new REXPRaw(rexp.asBytes(), attributes);
+        } else if (rexp instanceof REXPGenericVector) {
+            return new REXPGenericVector(rexp.asList(), attributes);
+        }
+        return rexp;
+    }
+
+    /**
+     * Deferred strings are integer or double vectors coerced to character vectors,
+     * the coercion mimics as.character() for the common cases.
+     */
+    private static String[] coerceToStrings(REXP rexp) throws REXPMismatchException {
+        if (rexp instanceof REXPInteger) {
+            int[] values = rexp.asIntegers();
+            String[] strings = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                strings[i] = values[i] == NA_INTEGER ? null : Integer.toString(values[i]);
+            }
+            return strings;
+        }
+        double[] values = rexp.asDoubles();
+        String[] strings = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            double value = values[i];
+            if (REXPDouble.isNA(value)) {
+                strings[i] = null;
+            } else if (Double.isNaN(value)) {
+                strings[i] = "NaN";
+            } else if (Double.isInfinite(value)) {
+                strings[i] = value > 0 ? "Inf" : "-Inf";
+            } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                strings[i] = Long.toString((long) value);
+            } else {
+                strings[i] = String.format("%.15g", value).replaceAll("\\.?0+(e|$)", "$1");
+            }
+        }
+        return strings;
+    }
+}
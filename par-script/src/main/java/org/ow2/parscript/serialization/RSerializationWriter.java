@@ -0,0 +1,248 @@
+package org.ow2.parscript.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPDouble;
+import org.rosuda.REngine.REXPExpressionVector;
+import org.rosuda.REngine.REXPGenericVector;
+import org.rosuda.REngine.REXPInteger;
+import org.rosuda.REngine.REXPLanguage;
+import org.rosuda.REngine.REXPList;
+import org.rosuda.REngine.REXPLogical;
+import org.rosuda.REngine.REXPMismatchException;
+import org.rosuda.REngine.REXPNull;
+import org.rosuda.REngine.REXPRaw;
+import org.rosuda.REngine.REXPS4;
+import org.rosuda.REngine.REXPString;
+import org.rosuda.REngine.REXPSymbol;
+import org.rosuda.REngine.RList;
+
+import static org.ow2.parscript.serialization.RSerialization.*;
+
+/**
+ * Streaming writer of the R XDR serialization format (version 2). The output can be
+ * read in R with unserialize() or, if written to a file, with readRDS().
+ * <p>
+ * Objects built by {@link org.ow2.parscript.RexpConvert#jobj2rexp(Object)} are supported:
+ * atomic vectors, lists, pairlists, symbols and S4 objects with their attributes.
+ *
+ * @author Activeeon Team
+ */
+public class RSerializationWriter implements Closeable {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final DataOutputStream out;
+
+    /**
+     * Index of the symbols already written, symbols are written once then referenced
+     */
+    private final Map<String, Integer> symbols = new HashMap<String, Integer>();
+
+    public RSerializationWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * Serializes an object in the same format as serialize(x, NULL, version = 2).
+     */
+    public static byte[] serialize(REXP rexp) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RSerializationWriter writer = new RSerializationWriter(bytes);
+        writer.writeObject(rexp);
+        writer.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the serialization header followed by the object.
+     */
+    public void writeObject(REXP rexp) throws IOException {
+        this.symbols.clear();
+        out.write(XDR_FORMAT);
+        out.writeInt(VERSION_2);
+        out.writeInt(WRITER_R_VERSION);
+        out.writeInt(MIN_READER_R_VERSION);
+        try {
+            this.writeItem(rexp);
+        } catch (REXPMismatchException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeItem(REXP rexp) throws IOException, REXPMismatchException {
+        if (rexp == null || rexp instanceof REXPNull) {
+            out.writeInt(NILVALUE_SXP);
+        } else if (rexp instanceof REXPSymbol) {
+            this.writeSymbol(rexp.asString());
+        } else if (rexp instanceof REXPList) {
+            this.writePairList((REXPList) rexp);
+        } else if (rexp instanceof REXPGenericVector) {
+            this.writeGenericVector((REXPGenericVector) rexp);
+        } else if (rexp instanceof REXPString) {
+            String[] values = rexp.asStrings();
+            REXPList attributes = rexp._attr();
+            this.writeFlags(STRSXP, attributes);
+            out.writeInt(values.length);
+            for (String value : values) {
+                this.writeString(value);
+            }
+            this.writeAttributes(attributes);
+        } else if (rexp instanceof REXPLogical) {
+            byte[] values = rexp.asBytes();
+            REXPList attributes = rexp._attr();
+            this.writeFlags(LGLSXP, attributes);
+            out.writeInt(values.length);
+            for (byte value : values) {
+                out.writeInt(REXPLogical.isNA(value) ? NA_INTEGER : value == REXPLogical.FALSE ? 0 : 1);
+            }
+            this.writeAttributes(attributes);
+        } else if (rexp instanceof REXPInteger) {
+            int[] values = rexp.asIntegers();
+            REXPList attributes = rexp._attr();
+            this.writeFlags(INTSXP, attributes);
+            out.writeInt(values.length);
+            for (int value : values) {
+                out.writeInt(value);
+            }
+            this.writeAttributes(attributes);
+        } else if (rexp instanceof REXPDouble) {
+            double[] values = rexp.asDoubles();
+            REXPList attributes = rexp._attr();
+            this.writeFlags(REALSXP, attributes);
+            out.writeInt(values.length);
+            for (double value : values) {
+                // raw bits keep the NA payload
+                out.writeLong(Double.doubleToRawLongBits(value));
+            }
+            this.writeAttributes(attributes);
+        } else if (rexp instanceof REXPRaw) {
+            byte[] values = rexp.asBytes();
+            REXPList attributes = rexp._attr();
+            this.writeFlags(RAWSXP, attributes);
+            out.writeInt(values.length);
+            out.write(values);
+            this.writeAttributes(attributes);
+        } else if (rexp instanceof REXPS4) {
+            REXPList attributes = rexp._attr();
+            this.writeFlags(S4SXP, attributes);
+            this.writeAttributes(attributes);
+        } else {
+            throw new IOException("Unable to serialize " + rexp);
+        }
+    }
+
+    private void writeFlags(int type, REXPList attributes) throws IOException {
+        boolean hasAttributes = attributes != null && attributes.length() > 0;
+        boolean isObject = hasAttributes && attributes.asList().at("class") != null;
+        out.writeInt(flags(type, 0, isObject, hasAttributes, false));
+    }
+
+    private void writeAttributes(REXPList attributes) throws IOException, REXPMismatchException {
+        if (attributes != null && attributes.length() > 0) {
+            this.writePairList(attributes);
+        }
+    }
+
+    private void writeSymbol(String name) throws IOException {
+        Integer index = symbols.get(name);
+        if (index != null) {
+            out.writeInt((index << 8) | REFSXP);
+            return;
+        }
+        symbols.put(name, symbols.size() + 1);
+        out.writeInt(SYMSXP);
+        this.writeString(name);
+    }
+
+    /**
+     * Writes a CHARSXP, null is written as NA
+     */
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(CHARSXP);
+            out.writeInt(NA_STRING_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(flags(CHARSXP, bytes.length == value.length() ? ASCII_MASK : UTF8_MASK, false, false,
+                false));
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writePairList(REXPList rexp) throws IOException, REXPMismatchException {
+        RList rlist = rexp.asList();
+        if (rlist.isEmpty()) {
+            out.writeInt(NILVALUE_SXP);
+            return;
+        }
+        int type = rexp instanceof REXPLanguage ? LANGSXP : LISTSXP;
+        REXPList attributes = rexp._attr();
+        for (int i = 0; i < rlist.size(); i++) {
+            String name = rlist.isNamed() ? rlist.keyAt(i) : null;
+            boolean hasTag = name != null && !name.isEmpty();
+            // only the first cell holds the attributes of the pair list
+            boolean hasAttributes = i == 0 && attributes != null && attributes.length() > 0;
+            boolean isObject = hasAttributes && attributes.asList().at("class") != null;
+            out.writeInt(flags(i == 0 ? type : LISTSXP, 0, isObject, hasAttributes, hasTag));
+            if (hasAttributes) {
+                this.writePairList(attributes);
+            }
+            if (hasTag) {
+                this.writeSymbol(name);
+            }
+            this.writeItem(rlist.at(i));
+        }
+        out.writeInt(NILVALUE_SXP);
+    }
+
+    private void writeGenericVector(REXPGenericVector rexp) throws IOException, REXPMismatchException {
+        RList rlist = rexp.asList();
+        REXPList attributes = withNames(rexp._attr(), rlist);
+        this.writeFlags(rexp instanceof REXPExpressionVector ? EXPRSXP : VECSXP, attributes);
+        out.writeInt(rlist.size());
+        for (int i = 0; i < rlist.size(); i++) {
+            this.writeItem(rlist.at(i));
+        }
+        this.writeAttributes(attributes);
+    }
+
+    /**
+     * The names of a list built from a Java map are only set on the RList, they are
+     * written as the names attribute
+     */
+    private static REXPList withNames(REXPList attributes, RList rlist) {
+        if (!rlist.isNamed() || (attributes != null && attributes.asList().at("names") != null)) {
+            return attributes;
+        }
+        String[] names = new String[rlist.size()];
+        for (int i = 0; i < names.length; i++) {
+            String name = rlist.keyAt(i);
+            names[i] = name == null ? "" : name;
+        }
+        RList newAttributes = new RList();
+        if (attributes != null) {
+            newAttributes.putAll(attributes.asList());
+        }
+        newAttributes.put("names", new REXPString(names));
+        return new REXPList(newAttributes);
+    }
+}
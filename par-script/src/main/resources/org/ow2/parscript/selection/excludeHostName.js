@@ -0,0 +1,21 @@
+importPackage(java.lang);
+importPackage(java.io);
+importPackage(java.util);
+importPackage(java.exception);
+importClass(org.ow2.proactive.scripting.helper.selection.SelectionUtils);
+
+// Get the arguments of the script:
+// args[0] : the hostname to avoid
+var hostName = args[0];
+
+/* Check if the name of the host that holds the node is different from the name given in argument */
+if (SelectionUtils.checkHostName(hostName))
+{
+	selected = false;
+	println("Hostname = " + hostName + " ==> not selected");
+}
+else
+{
+	selected = true;
+	println("Hostname <> " + hostName + " ==> selected");
+}
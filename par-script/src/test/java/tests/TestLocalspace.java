@@ -48,6 +48,31 @@ public class TestLocalspace {
                 resPath.replace("/", File.separator));
     }
 
+    @Test
+    public void userSpaceIsRemovedAfterTheScript() throws Exception {
+        File f = new File(System.getProperty("java.io.tmpdir"));
+        DataSpacesFileObject dsfo = new MockedDSFO(f.toURI());
+
+        String rScript = "result=userspace;";
+
+        Map<String, Object> aBindings = Collections.singletonMap(PARScriptEngine.DS_USER_BINDING_NAME,
+                (Object) dsfo);
+        SimpleScript ss = new SimpleScript(rScript, PARScriptFactory.ENGINE_NAME);
+        TaskScript taskScript = new TaskScript(ss);
+        ScriptResult<Serializable> res = taskScript.execute(aBindings, System.out, System.err);
+
+        String resPath = (String) res.getResult();
+        org.junit.Assert.assertNotNull("No result from R script", resPath);
+        org.junit.Assert.assertEquals("R script userspace is incorrect", f.getCanonicalPath(),
+                resPath.replace("/", File.separator));
+
+        // the global environment is kept, the next script must not see the space of the previous one
+        SimpleScript next = new SimpleScript("result=exists('userspace');", PARScriptFactory.ENGINE_NAME);
+        ScriptResult<Serializable> nextRes = new TaskScript(next).execute(Collections.<String, Object> emptyMap(),
+                System.out, System.err);
+        org.junit.Assert.assertEquals(Boolean.FALSE, nextRes.getResult());
+    }
+
     class MockedDSFO implements DataSpacesFileObject {
         private final URI uri;
 
@@ -0,0 +1,139 @@
+package tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.ow2.parscript.RexpConvert;
+import org.ow2.parscript.serialization.RSerializationReader;
+import org.ow2.parscript.serialization.RSerializationWriter;
+import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPDouble;
+import org.rosuda.REngine.REXPInteger;
+import org.rosuda.REngine.REXPString;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the pure Java reader and writer of the R serialization format.
+ *
+ * @author Activeeon Team
+ */
+public class TestRSerialization {
+
+    @Test
+    public void roundTripOfConvertedObjects() throws Exception {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("doubles", new double[] { 1.5, REXPDouble.NA, Double.NEGATIVE_INFINITY });
+        map.put("integers", new int[] { 1, REXPInteger.NA, 3 });
+        map.put("strings", new String[] { "a", null, "\u00e9t\u00e9" });
+        map.put("logicals", new boolean[] { true, false });
+        map.put("raw", new byte[] { 0, 1, (byte) 255 });
+        map.put("list", Arrays.asList("x", 2d));
+
+        byte[] bytes = RSerializationWriter.serialize(RexpConvert.jobj2rexp(map));
+        REXP rexp = RSerializationReader.unserialize(bytes);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> result = (Map<String, Object>) RexpConvert.rexp2jobj(rexp);
+        assertEquals(map.keySet(), result.keySet());
+        double[] doubles = (double[]) result.get("doubles");
+        assertEquals(1.5, doubles[0], 0);
+        assertTrue("NA must be preserved", REXPDouble.isNA(doubles[1]));
+        assertEquals(Double.NEGATIVE_INFINITY, doubles[2], 0);
+        assertArrayEquals((int[]) map.get("integers"), (int[]) result.get("integers"));
+        assertArrayEquals((String[]) map.get("strings"), (String[]) result.get("strings"));
+        assertTrue(Arrays.equals((boolean[]) map.get("logicals"), (boolean[]) result.get("logicals")));
+        assertArrayEquals((byte[]) map.get("raw"), (byte[]) result.get("raw"));
+        assertEquals(map.get("list"), result.get("list"));
+    }
+
+    @Test
+    public void readGzipCompressedStream() throws Exception {
+        REXP rexp = new REXPString(new String[] { "compressed", null });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+        gzip.write(RSerializationWriter.serialize(rexp));
+        gzip.close();
+
+        String[] strings = RSerializationReader.unserialize(bytes.toByteArray()).asStrings();
+        assertEquals("compressed", strings[0]);
+        assertNull(strings[1]);
+    }
+
+    /**
+     * Bytes of serialize(1:3, NULL) in R >= 3.5, the sequence is a compact ALTREP object
+     */
+    @Test
+    public void readCompactIntegerSequence() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBytes("X\n");
+        out.writeInt(3);
+        out.writeInt(0x040100);
+        out.writeInt(0x030500);
+        out.writeInt(5);
+        out.writeBytes("UTF-8");
+        out.writeInt(238); // ALTREP_SXP
+        out.writeInt(2); // info pair list: class, package, type
+        out.writeInt(1);
+        writeAsciiString(out, "compact_intseq");
+        out.writeInt(2);
+        out.writeInt(1);
+        writeAsciiString(out, "base");
+        out.writeInt(2);
+        out.writeInt(13);
+        out.writeInt(1);
+        out.writeInt(13);
+        out.writeInt(254);
+        out.writeInt(14); // state: length, start, step
+        out.writeInt(3);
+        out.writeDouble(3);
+        out.writeDouble(1);
+        out.writeDouble(1);
+        out.writeInt(254); // no attributes
+        out.close();
+
+        REXP rexp = RSerializationReader.unserialize(bytes.toByteArray());
+        assertTrue(rexp.isInteger());
+        assertArrayEquals(new int[] { 1, 2, 3 }, rexp.asIntegers());
+    }
+
+    /**
+     * A stream written by an R session whose native encoding is unknown to Java
+     */
+    @Test
+    public void readUnknownNativeEncoding() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBytes("X\n");
+        out.writeInt(3);
+        out.writeInt(0x040100);
+        out.writeInt(0x030500);
+        out.writeInt(7);
+        out.writeBytes("unknown");
+        out.writeInt(16); // STRSXP
+        out.writeInt(1);
+        out.writeInt(9); // CHARSXP in the native encoding
+        out.writeInt(3);
+        out.writeBytes("abc");
+        out.close();
+
+        REXP rexp = RSerializationReader.unserialize(bytes.toByteArray());
+        assertArrayEquals(new String[] { "abc" }, rexp.asStrings());
+    }
+
+    private static void writeAsciiString(DataOutputStream out, String value) throws Exception {
+        out.writeInt(9 | (64 << 12));
+        out.writeInt(value.length());
+        out.writeBytes(value);
+    }
+}
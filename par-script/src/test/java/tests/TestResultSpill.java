@@ -0,0 +1,102 @@
+package tests;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.objectweb.proactive.extensions.dataspaces.api.DataSpacesFileObject;
+import org.ow2.parscript.PARScriptEngine;
+import org.ow2.parscript.PARScriptFactory;
+import org.ow2.parscript.RResultReference;
+import org.ow2.proactive.scripting.ScriptResult;
+import org.ow2.proactive.scripting.SimpleScript;
+import org.ow2.proactive.scripting.TaskScript;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests that a result bigger than the spill threshold is saved in the localspace
+ * and replaced by a reference.
+ *
+ * @author Activeeon Team
+ */
+public class TestResultSpill {
+
+    @After
+    public void clearThreshold() {
+        System.clearProperty(PARScriptEngine.RESULT_SPILL_THRESHOLD_PROPERTY);
+    }
+
+    @Test
+    public void test() throws Exception {
+        System.setProperty(PARScriptEngine.RESULT_SPILL_THRESHOLD_PROPERTY, "1024");
+
+        File f = new File(System.getProperty("java.io.tmpdir"));
+        DataSpacesFileObject dsfo = new TestLocalspace().new MockedDSFO(f.toURI());
+
+        Map<String, Serializable> variables = new HashMap<String, Serializable>();
+        variables.put(PARScriptEngine.JOB_ID_VARIABLE, "1");
+        variables.put(PARScriptEngine.TASK_NAME_VARIABLE, "spilled");
+
+        Map<String, Object> aBindings = new HashMap<String, Object>();
+        aBindings.put(PARScriptEngine.DS_SCRATCH_BINDING_NAME, dsfo);
+        aBindings.put(PARScriptEngine.TASK_SCRIPT_VARIABLES, variables);
+
+        String rScript = "result = runif(10000)";
+        SimpleScript ss = new SimpleScript(rScript, PARScriptFactory.ENGINE_NAME);
+        TaskScript taskScript = new TaskScript(ss);
+        ScriptResult<Serializable> res = taskScript.execute(aBindings, System.out, System.err);
+
+        Assert.assertTrue("The oversized result was not spilled", res.getResult() instanceof RResultReference);
+        RResultReference ref = (RResultReference) res.getResult();
+        Assert.assertEquals(PARScriptEngine.RESULT_SPILL_DIR + "/1/spilled" + PARScriptEngine.RESULT_SPILL_EXTENSION,
+                ref.getPath());
+        File spilled = new File(f, ref.getPath());
+        Assert.assertTrue("The spilled result file does not exist", spilled.exists());
+        Assert.assertEquals(spilled.length(), ref.getSize());
+        spilled.delete();
+
+        // Small results are kept in memory
+        rScript = "result = 1";
+        ss = new SimpleScript(rScript, PARScriptFactory.ENGINE_NAME);
+        taskScript = new TaskScript(ss);
+        res = taskScript.execute(aBindings, System.out, System.err);
+        Assert.assertEquals(1d, res.getResult());
+
+        // The threshold assigned by the script overrides the property
+        rScript = PARScriptEngine.RESULT_SPILL_THRESHOLD_VARIABLE + " <- \"0\"\nresult = runif(10000)";
+        ss = new SimpleScript(rScript, PARScriptFactory.ENGINE_NAME);
+        taskScript = new TaskScript(ss);
+        res = taskScript.execute(aBindings, System.out, System.err);
+        Assert.assertFalse("The result was spilled although the script disabled spilling",
+                res.getResult() instanceof RResultReference);
+    }
+
+    @Test
+    public void thresholdOfTheScript() throws Exception {
+        File f = new File(System.getProperty("java.io.tmpdir"));
+        DataSpacesFileObject dsfo = new TestLocalspace().new MockedDSFO(f.toURI());
+
+        Map<String, Object> aBindings = new HashMap<String, Object>();
+        aBindings.put(PARScriptEngine.DS_SCRATCH_BINDING_NAME, dsfo);
+
+        String rScript = PARScriptEngine.RESULT_SPILL_THRESHOLD_VARIABLE + " <- \"1024\"\nresult = runif(10000)";
+        SimpleScript ss = new SimpleScript(rScript, PARScriptFactory.ENGINE_NAME);
+        TaskScript taskScript = new TaskScript(ss);
+        ScriptResult<Serializable> res = taskScript.execute(aBindings, System.out, System.err);
+
+        Assert.assertTrue("The oversized result was not spilled", res.getResult() instanceof RResultReference);
+        new File(f, ((RResultReference) res.getResult()).getPath()).delete();
+
+        // The threshold applies only to the script assigning it
+        rScript = "result = runif(10000)";
+        ss = new SimpleScript(rScript, PARScriptFactory.ENGINE_NAME);
+        taskScript = new TaskScript(ss);
+        res = taskScript.execute(aBindings, System.out, System.err);
+        Assert.assertFalse("The threshold of the previous script was applied",
+                res.getResult() instanceof RResultReference);
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Map;
 
 import javax.swing.JPanel;
 
+import org.ow2.parscript.PARScriptEngine;
 import org.ow2.parscript.PARScriptFactory;
 import org.ow2.proactive.scheduler.common.job.JobId;
 import org.ow2.proactive.scheduler.common.task.TaskId;
@@ -20,8 +21,8 @@ import org.junit.Test;
 
 /**
  * Tests for results from previous tasks. In the R script the variable 'results'
- * will be a map with the taskname as key and the value being the result of
- * {@link TaskResult#value()}.
+ * will be a list with the taskname as key and the value being the result of
+ * {@link TaskResult#value()}, fetched only for the tasks used by the script.
  *
  * @author Activeeon Team
  */
@@ -54,6 +55,83 @@ public class TestResults {
         org.junit.Assert.assertArrayEquals(new double[] { result1, result2 }, (double[]) res.getResult(), 0);
     }
 
+    @Test
+    public void resultsAreFetchedOnAccess() throws Exception {
+        MockedTaskResult used = new MockedTaskResult(new MockedTaskId("used"), 1d);
+        MockedTaskResult unused = new MockedTaskResult(new MockedTaskId("unused"), 2d);
+
+        String rScript = "result=results[['used']] + results[['used']]";
+
+        Map<String, Object> aBindings = Collections.singletonMap(TaskScript.RESULTS_VARIABLE,
+                (Object) new TaskResult[] { used, unused });
+        SimpleScript ss = new SimpleScript(rScript, PARScriptFactory.ENGINE_NAME);
+        TaskScript taskScript = new TaskScript(ss);
+        ScriptResult<Serializable> res = taskScript.execute(aBindings, System.out, System.err);
+
+        org.junit.Assert.assertEquals(2d, res.getResult());
+        org.junit.Assert.assertEquals("The accessed result must be fetched once", 1, used.valueCalls);
+        org.junit.Assert.assertEquals("The unused result must not be fetched", 0, unused.valueCalls);
+    }
+
+    @Test
+    public void resultsAreAList() throws Exception {
+        MockedTaskResult first = new MockedTaskResult(new MockedTaskId("first"), 1d);
+        MockedTaskResult second = new MockedTaskResult(new MockedTaskId("second"), 2d);
+
+        String rScript = "result=c(length(results), results[[1]], sapply(results, identity)[['second']])";
+
+        Map<String, Object> aBindings = Collections.singletonMap(TaskScript.RESULTS_VARIABLE,
+                (Object) new TaskResult[] { first, second });
+        SimpleScript ss = new SimpleScript(rScript, PARScriptFactory.ENGINE_NAME);
+        TaskScript taskScript = new TaskScript(ss);
+        ScriptResult<Serializable> res = taskScript.execute(aBindings, System.out, System.err);
+
+        org.junit.Assert.assertArrayEquals(new double[] { 2d, 1d, 2d }, (double[]) res.getResult(), 0);
+        org.junit.Assert.assertEquals(1, second.valueCalls);
+    }
+
+    /**
+     * The script evaluates an expression built at run time, like the PASolveCall
+     * expression loaded by the tasks of PA(), its text never mentions 'results'
+     */
+    @Test
+    public void resultsOfAnExpressionBuiltAtRunTime() throws Exception {
+        MockedTaskResult first = new MockedTaskResult(new MockedTaskId("first"), 1d);
+        MockedTaskResult second = new MockedTaskResult(new MockedTaskId("second"), 2d);
+
+        String rScript = "call <- eval(substitute(quote(x[['second']] * 2), list(x = as.name(paste0('res', 'ults')))))\n" +
+            "result = eval(call)";
+
+        Map<String, Object> aBindings = Collections.singletonMap(TaskScript.RESULTS_VARIABLE,
+                (Object) new TaskResult[] { first, second });
+        SimpleScript ss = new SimpleScript(rScript, PARScriptFactory.ENGINE_NAME);
+        TaskScript taskScript = new TaskScript(ss);
+        ScriptResult<Serializable> res = taskScript.execute(aBindings, System.out, System.err);
+
+        org.junit.Assert.assertEquals(4d, res.getResult());
+        org.junit.Assert.assertEquals(1, second.valueCalls);
+    }
+
+    @Test
+    public void declaredResultsAreFetched() throws Exception {
+        MockedTaskResult used = new MockedTaskResult(new MockedTaskId("used"), 1d);
+        MockedTaskResult unused = new MockedTaskResult(new MockedTaskId("unused"), 2d);
+
+        String rScript = PARScriptEngine.RESULTS_TAG + " used\n" +
+            "call <- eval(substitute(quote(x[['used']] + 1), list(x = as.name(paste0('res', 'ults')))))\n" +
+            "result = eval(call)";
+
+        Map<String, Object> aBindings = Collections.singletonMap(TaskScript.RESULTS_VARIABLE,
+                (Object) new TaskResult[] { used, unused });
+        SimpleScript ss = new SimpleScript(rScript, PARScriptFactory.ENGINE_NAME);
+        TaskScript taskScript = new TaskScript(ss);
+        ScriptResult<Serializable> res = taskScript.execute(aBindings, System.out, System.err);
+
+        org.junit.Assert.assertEquals(2d, res.getResult());
+        org.junit.Assert.assertEquals("The declared result must be fetched once", 1, used.valueCalls);
+        org.junit.Assert.assertEquals("The undeclared result must not be fetched", 0, unused.valueCalls);
+    }
+
     final class MockedTaskId implements TaskId {
         private String name;
 
@@ -95,6 +173,7 @@ public class TestResults {
     final class MockedTaskResult implements TaskResult {
         private TaskId taskId;
         private Serializable value;
+        private int valueCalls;
 
         public MockedTaskResult(TaskId taskId, Serializable value) {
             this.taskId = taskId;
@@ -153,6 +232,7 @@ public class TestResults {
 
         @Override
         public Serializable value() throws Throwable {
+            this.valueCalls++;
             return this.value;
         }
     }
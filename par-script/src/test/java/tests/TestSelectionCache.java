@@ -0,0 +1,67 @@
+package tests;
+
+import javax.script.Bindings;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+
+import org.ow2.parscript.PARScriptEngine;
+import org.ow2.parscript.PARScriptFactory;
+import org.ow2.proactive.scripting.SelectionScript;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests that the result of a static selection script is cached while the TTL is not
+ * expired and until the cache is invalidated.
+ *
+ * @author Activeeon Team
+ */
+public class TestSelectionCache {
+
+    @After
+    public void clearCache() {
+        System.clearProperty(PARScriptEngine.SELECTION_CACHE_TTL_PROPERTY);
+        PARScriptEngine.invalidateSelectionCache();
+    }
+
+    @Test
+    public void test() throws Exception {
+        System.setProperty(PARScriptEngine.SELECTION_CACHE_TTL_PROPERTY, "60000");
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName(PARScriptFactory.ENGINE_NAME);
+
+        engine.eval(".evaluations <- 0");
+        String selectionScript = PARScriptEngine.staticSelectionScript(
+                ".evaluations <- .evaluations + 1; selected <- TRUE");
+
+        Bindings bindings = engine.createBindings();
+        engine.eval(selectionScript, bindings);
+        Assert.assertEquals(true, bindings.get(SelectionScript.RESULT_VARIABLE));
+
+        bindings = engine.createBindings();
+        engine.eval(selectionScript, bindings);
+        Assert.assertEquals("The cached selection result must be used", true,
+                bindings.get(SelectionScript.RESULT_VARIABLE));
+        Assert.assertEquals("The selection script must be evaluated once", 1d, engine.eval(".evaluations"));
+
+        PARScriptEngine.invalidateSelectionCache();
+        engine.eval(selectionScript, engine.createBindings());
+        Assert.assertEquals("The selection script must be evaluated after the invalidation", 2d,
+                engine.eval(".evaluations"));
+    }
+
+    @Test
+    public void dynamicScriptsAreNotCached() throws Exception {
+        System.setProperty(PARScriptEngine.SELECTION_CACHE_TTL_PROPERTY, "60000");
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName(PARScriptFactory.ENGINE_NAME);
+
+        engine.eval(".evaluations <- 0");
+        String selectionScript = ".evaluations <- .evaluations + 1; selected <- TRUE";
+
+        engine.eval(selectionScript, engine.createBindings());
+        engine.eval(selectionScript, engine.createBindings());
+        Assert.assertEquals("The untagged selection script must be evaluated each time", 2d,
+                engine.eval(".evaluations"));
+    }
+}
@@ -0,0 +1,44 @@
+package tests;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.ow2.parscript.PARScriptEngine;
+import org.ow2.parscript.PARScriptFactory;
+import org.ow2.proactive.scripting.SimpleScript;
+import org.ow2.proactive.scripting.TaskScript;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests that only the variables modified or added by the script are propagated
+ * to the job variables.
+ *
+ * @author Activeeon Team
+ */
+public class TestVariables {
+
+    @Test
+    public void test() throws Exception {
+        String untouched = new String("untouched");
+        HashMap<String, Serializable> variablesMap = new HashMap<String, Serializable>();
+        variablesMap.put("untouched", untouched);
+        variablesMap.put("modified", "badValue");
+
+        String rScript = "variables$modified = 'goodValue'; variables$added = 'newValue'";
+
+        Map<String, Object> aBindings = Collections.singletonMap(PARScriptEngine.TASK_SCRIPT_VARIABLES,
+                (Object) variablesMap);
+        SimpleScript ss = new SimpleScript(rScript, PARScriptFactory.ENGINE_NAME);
+        TaskScript taskScript = new TaskScript(ss);
+        taskScript.execute(aBindings, System.out, System.err);
+
+        Assert.assertEquals("goodValue", variablesMap.get("modified"));
+        Assert.assertEquals("newValue", variablesMap.get("added"));
+        Assert.assertSame("An unmodified variable must not be converted back", untouched,
+                variablesMap.get("untouched"));
+    }
+}